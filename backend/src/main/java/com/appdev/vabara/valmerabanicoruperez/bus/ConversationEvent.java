@@ -0,0 +1,251 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+
+import java.time.LocalDateTime;
+
+// Something that happened in a conversation and must reach every node: a message was sent, the
+// conversation was created, or a participant read it. Plain bean so it serializes as JSON.
+// Two types are not about one conversation: events_lost means the bus had to drop events and
+// listeners holding state derived from them should discard it; user_changed means a student or
+// tutor with that email was saved or deleted, so nodes caching users by email should forget it;
+// tutor_changed means a tutor was written (all tutors when tutorId is null) and the catalog reached
+// catalogVersion, so nodes indexing the catalog should reload it; presence means the user with
+// presenceKey sent a heartbeat to some node.
+public class ConversationEvent {
+
+    public static final String MESSAGE_SENT = "message_sent";
+    public static final String CONVERSATION_CREATED = "conversation_created";
+    public static final String CONVERSATION_READ = "conversation_read";
+    public static final String EVENTS_LOST = "events_lost";
+    public static final String USER_CHANGED = "user_changed";
+    public static final String TUTOR_CHANGED = "tutor_changed";
+    public static final String PRESENCE = "presence";
+
+    private String type;
+    private Long conversationId;
+
+    // message_sent
+    private Long messageId;
+    private String senderEmail;
+    private String senderType;
+    private String messageText;
+    private LocalDateTime createdAt;
+
+    // conversation_created
+    private String studentEmail;
+    private Long tutorId;
+    private String tutorName;
+    private String tutorSubject;
+
+    // conversation_read
+    private String readerType;
+
+    // user_changed
+    private String userEmail;
+
+    // tutor_changed, with tutorId
+    private Long catalogVersion;
+
+    // presence
+    private String presenceKey;
+
+    public ConversationEvent() {
+    }
+
+    public static ConversationEvent messageSent(Message message) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = MESSAGE_SENT;
+        event.conversationId = message.getConversationId();
+        event.messageId = message.getId();
+        event.senderEmail = message.getSenderEmail();
+        event.senderType = message.getSenderType();
+        event.messageText = message.getMessageText();
+        event.createdAt = message.getCreatedAt();
+        return event;
+    }
+
+    public static ConversationEvent conversationCreated(Conversation conversation) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = CONVERSATION_CREATED;
+        event.conversationId = conversation.getId();
+        event.studentEmail = conversation.getStudentEmail();
+        event.tutorId = conversation.getTutorId();
+        event.tutorName = conversation.getTutorName();
+        event.tutorSubject = conversation.getTutorSubject();
+        event.createdAt = conversation.getCreatedAt();
+        return event;
+    }
+
+    public static ConversationEvent conversationRead(Long conversationId, String readerType) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = CONVERSATION_READ;
+        event.conversationId = conversationId;
+        event.readerType = readerType;
+        return event;
+    }
+
+    public static ConversationEvent eventsLost() {
+        ConversationEvent event = new ConversationEvent();
+        event.type = EVENTS_LOST;
+        return event;
+    }
+
+    public static ConversationEvent userChanged(String email) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = USER_CHANGED;
+        event.userEmail = email;
+        return event;
+    }
+
+    public static ConversationEvent tutorChanged(Long tutorId, long catalogVersion) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = TUTOR_CHANGED;
+        event.tutorId = tutorId;
+        event.catalogVersion = catalogVersion;
+        return event;
+    }
+
+    public static ConversationEvent presence(String presenceKey) {
+        ConversationEvent event = new ConversationEvent();
+        event.type = PRESENCE;
+        event.presenceKey = presenceKey;
+        return event;
+    }
+
+    public Message toMessage() {
+        Message message = new Message(conversationId, senderEmail, senderType, messageText);
+        message.setId(messageId);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+
+    public Conversation toConversation() {
+        Conversation conversation = new Conversation(studentEmail, tutorId, tutorName, tutorSubject);
+        conversation.setId(conversationId);
+        conversation.setCreatedAt(createdAt);
+        conversation.setLastMessageAt(createdAt);
+        return conversation;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public Long getMessageId() {
+        return messageId;
+    }
+
+    public void setMessageId(Long messageId) {
+        this.messageId = messageId;
+    }
+
+    public String getSenderEmail() {
+        return senderEmail;
+    }
+
+    public void setSenderEmail(String senderEmail) {
+        this.senderEmail = senderEmail;
+    }
+
+    public String getSenderType() {
+        return senderType;
+    }
+
+    public void setSenderType(String senderType) {
+        this.senderType = senderType;
+    }
+
+    public String getMessageText() {
+        return messageText;
+    }
+
+    public void setMessageText(String messageText) {
+        this.messageText = messageText;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getStudentEmail() {
+        return studentEmail;
+    }
+
+    public void setStudentEmail(String studentEmail) {
+        this.studentEmail = studentEmail;
+    }
+
+    public Long getTutorId() {
+        return tutorId;
+    }
+
+    public void setTutorId(Long tutorId) {
+        this.tutorId = tutorId;
+    }
+
+    public String getTutorName() {
+        return tutorName;
+    }
+
+    public void setTutorName(String tutorName) {
+        this.tutorName = tutorName;
+    }
+
+    public String getTutorSubject() {
+        return tutorSubject;
+    }
+
+    public void setTutorSubject(String tutorSubject) {
+        this.tutorSubject = tutorSubject;
+    }
+
+    public String getReaderType() {
+        return readerType;
+    }
+
+    public void setReaderType(String readerType) {
+        this.readerType = readerType;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public void setUserEmail(String userEmail) {
+        this.userEmail = userEmail;
+    }
+
+    public Long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    public void setCatalogVersion(Long catalogVersion) {
+        this.catalogVersion = catalogVersion;
+    }
+
+    public String getPresenceKey() {
+        return presenceKey;
+    }
+
+    public void setPresenceKey(String presenceKey) {
+        this.presenceKey = presenceKey;
+    }
+}
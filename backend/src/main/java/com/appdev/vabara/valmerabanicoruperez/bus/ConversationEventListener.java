@@ -0,0 +1,10 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import java.util.List;
+
+// Receives conversation events from the bus in batches, in publish order. Called on the bus's
+// dispatch thread, so implementations must not block.
+public interface ConversationEventListener {
+
+    void onEvents(List<ConversationEvent> events);
+}
@@ -0,0 +1,107 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Single-node bus: events are queued and handed to the local listeners in batches by one dispatch
+// thread, which keeps them in publish order. Also the stand-in for the shared bus in local runs.
+// Publishing never blocks: when the dispatcher is a full queue behind, events are dropped and the
+// listeners get an events_lost event after the ones that made it.
+@Component
+@ConditionalOnProperty(name = "messaging.bus.type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryMessageBus implements MessageBus {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryMessageBus.class);
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private final List<ConversationEventListener> listeners;
+    private final BlockingQueue<ConversationEvent> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private Thread dispatcher;
+
+    public InMemoryMessageBus(List<ConversationEventListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = new Thread(this::dispatchLoop, "message-bus-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.interrupt();
+    }
+
+    @Override
+    public void publish(ConversationEvent event) {
+        if (!queue.offer(event)) {
+            recordDropped(dropped, droppedTotal);
+        }
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    private void dispatchLoop() {
+        List<ConversationEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                appendLossMarker(dropped, batch);
+                deliver(listeners, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Shared with JdbcMessageBus: count an event the queue had no room for
+    static void recordDropped(AtomicLong dropped, AtomicLong droppedTotal) {
+        if (dropped.getAndIncrement() == 0) {
+            log.warn("Conversation event queue is full; dropping events");
+        }
+        droppedTotal.incrementAndGet();
+    }
+
+    // Shared with JdbcMessageBus: tell the listeners about events dropped since the last batch
+    static void appendLossMarker(AtomicLong dropped, List<ConversationEvent> batch) {
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            log.warn("Dropped {} conversation events; listeners will discard derived state", lost);
+            batch.add(ConversationEvent.eventsLost());
+        }
+    }
+
+    static void deliver(List<ConversationEventListener> listeners, List<ConversationEvent> batch) {
+        List<ConversationEvent> events = List.copyOf(batch);
+        for (ConversationEventListener listener : listeners) {
+            try {
+                listener.onEvents(events);
+            } catch (RuntimeException e) {
+                log.warn("Conversation event listener {} failed: {}", listener.getClass().getSimpleName(),
+                        e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Multi-node bus that uses the shared database as its broker. Published events are batched into
+// the conversation_events table, and every node (including the publisher) polls that log in id
+// order and hands new rows to its local listeners. A node inserts its batches one after another,
+// so everything one node publishes is delivered everywhere in its publish order.
+//
+// Ids are handed out at insert time but become visible at commit, so a poll can see id 12 while
+// id 11 is still uncommitted on another node (or was rolled back and never will be). The cursor
+// moves past such holes at once and the skipped ids are looked up again on every poll until they
+// appear or messaging.bus.gap-timeout-ms has passed; a late row is delivered when it shows up.
+// Publishing never blocks: when the outbox is full events are dropped, and an events_lost event
+// is written to the log in their place so every node discards state derived from them. A batch
+// whose insert fails counts as dropped the same way, and the marker is retried until it is written.
+@Component
+@ConditionalOnProperty(name = "messaging.bus.type", havingValue = "jdbc")
+public class JdbcMessageBus implements MessageBus {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcMessageBus.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO conversation_events (conversation_id, payload, created_at) VALUES (?, ?, ?)";
+    private static final String POLL_SQL =
+            "SELECT id, payload FROM conversation_events WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String PURGE_SQL = "DELETE FROM conversation_events WHERE created_at < ?";
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final int MAX_TRACKED_GAPS = 10_000;
+    private static final int GAP_QUERY_SIZE = 500;
+    private static final long RETRY_DELAY_MS = 1_000;
+
+    private final List<ConversationEventListener> listeners;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<ConversationEvent> outbox = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    @Value("${messaging.bus.poll-interval-ms:100}")
+    private long pollIntervalMs;
+
+    @Value("${messaging.bus.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${messaging.bus.gap-timeout-ms:60000}")
+    private long gapTimeoutMs;
+
+    private volatile boolean running;
+    private Thread publisher;
+    private Thread poller;
+    // Poller thread only: the highest id seen, and the skipped ids below it with when they were skipped
+    private long cursor;
+    private final LinkedHashMap<Long, Long> gaps = new LinkedHashMap<>();
+
+    public JdbcMessageBus(List<ConversationEventListener> listeners, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper) {
+        this.listeners = listeners;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM conversation_events", Long.class);
+        cursor = maxId != null ? maxId : 0L;
+        running = true;
+
+        publisher = new Thread(this::publishLoop, "message-bus-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+
+        poller = new Thread(this::pollLoop, "message-bus-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        publisher.interrupt();
+        poller.interrupt();
+    }
+
+    @Override
+    public void publish(ConversationEvent event) {
+        if (!outbox.offer(event)) {
+            InMemoryMessageBus.recordDropped(dropped, droppedTotal);
+        }
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedTotal.get();
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.bus.purge-interval-ms:600000}")
+    public void purgeOldEvents() {
+        jdbcTemplate.update(PURGE_SQL, Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+    }
+
+    private void publishLoop() {
+        List<ConversationEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running) {
+            try {
+                // With a loss still to report, don't wait for the next event to write the marker
+                ConversationEvent first = dropped.get() > 0
+                        ? outbox.poll(RETRY_DELAY_MS, TimeUnit.MILLISECONDS)
+                        : outbox.take();
+                if (first != null) {
+                    batch.add(first);
+                    outbox.drainTo(batch, MAX_BATCH_SIZE - 1);
+                }
+                InMemoryMessageBus.appendLossMarker(dropped, batch);
+                if (!batch.isEmpty()) {
+                    insertBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Dropping {} conversation events after insert failure: {}", batch.size(), e.getMessage());
+                droppedBatch(batch);
+                if (!pause()) {
+                    return;
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Every event of a failed batch is lost, including a loss marker it carried; counting them
+    // puts a fresh marker into the next batch
+    private void droppedBatch(List<ConversationEvent> batch) {
+        for (ConversationEvent event : batch) {
+            if (ConversationEvent.EVENTS_LOST.equals(event.getType())) {
+                dropped.incrementAndGet();
+            } else {
+                InMemoryMessageBus.recordDropped(dropped, droppedTotal);
+            }
+        }
+    }
+
+    private boolean pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void insertBatch(List<ConversationEvent> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (ConversationEvent event : batch) {
+            try {
+                // events_lost belongs to no conversation
+                Long conversationId = event.getConversationId() != null ? event.getConversationId() : 0L;
+                rows.add(new Object[] { conversationId, objectMapper.writeValueAsString(event), now });
+            } catch (JsonProcessingException e) {
+                log.warn("Skipping unserializable conversation event: {}", e.getMessage());
+                InMemoryMessageBus.recordDropped(dropped, droppedTotal);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                poll();
+                TimeUnit.MILLISECONDS.sleep(pollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Polling conversation events failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    void poll() {
+        long now = System.currentTimeMillis();
+        List<ConversationEvent> batch = new ArrayList<>();
+        recheckGaps(now, batch);
+
+        for (Map<String, Object> row : jdbcTemplate.queryForList(POLL_SQL, cursor, MAX_BATCH_SIZE)) {
+            long id = ((Number) row.get("id")).longValue();
+            // Remember what was skipped; a hole wider than we track can only be a jump in the sequence
+            for (long missing = Math.max(cursor + 1, id - MAX_TRACKED_GAPS); missing < id; missing++) {
+                trackGap(missing, now);
+            }
+            cursor = id;
+            read(row, batch);
+        }
+        if (!batch.isEmpty()) {
+            InMemoryMessageBus.deliver(listeners, batch);
+        }
+    }
+
+    // Deliver skipped ids that have committed since, and stop looking for ones skipped too long ago
+    private void recheckGaps(long now, List<ConversationEvent> batch) {
+        gaps.values().removeIf(skippedAt -> now - skippedAt >= gapTimeoutMs);
+        if (gaps.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(gaps.keySet());
+        for (int from = 0; from < ids.size(); from += GAP_QUERY_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + GAP_QUERY_SIZE, ids.size()));
+            String sql = "SELECT id, payload FROM conversation_events WHERE id IN ("
+                    + String.join(",", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY id";
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql, chunk.toArray())) {
+                gaps.remove(((Number) row.get("id")).longValue());
+                read(row, batch);
+            }
+        }
+    }
+
+    private void trackGap(long id, long now) {
+        if (gaps.size() >= MAX_TRACKED_GAPS) {
+            // Give up on the oldest hole first
+            Iterator<Long> oldest = gaps.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        gaps.put(id, now);
+    }
+
+    private void read(Map<String, Object> row, List<ConversationEvent> batch) {
+        try {
+            batch.add(objectMapper.readValue((String) row.get("payload"), ConversationEvent.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping unreadable conversation event {}: {}", row.get("id"), e.getMessage());
+        }
+    }
+}
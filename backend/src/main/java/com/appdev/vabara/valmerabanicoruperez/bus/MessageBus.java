@@ -0,0 +1,11 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+// Fans conversation events out to the ConversationEventListeners of every backend node.
+// Events of one conversation are delivered in the order they were published.
+public interface MessageBus {
+
+    // Never blocks; events that do not fit are dropped and counted
+    void publish(ConversationEvent event);
+
+    long getDroppedCount();
+}
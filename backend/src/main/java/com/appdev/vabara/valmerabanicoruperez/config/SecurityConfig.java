@@ -1,7 +1,9 @@
 package com.appdev.vabara.valmerabanicoruperez.config;
 
+import com.appdev.vabara.valmerabanicoruperez.filter.AuthRateLimitFilter;
 import com.appdev.vabara.valmerabanicoruperez.filter.JwtFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -10,6 +12,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.web.filter.CorsFilter;
 
 @Configuration
 @EnableWebSecurity
@@ -18,14 +21,35 @@ public class SecurityConfig {
         @Autowired
         private JwtFilter jwtFilter;
 
+        @Autowired
+        private AuthRateLimitFilter authRateLimitFilter;
+
         @Bean
         public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
                 http.cors(Customizer.withDefaults())
                                 .csrf(AbstractHttpConfigurer::disable)
                                 .authorizeHttpRequests(auth -> auth
-                                                .anyRequest().permitAll());
-                // Removed JWT filter - allow all requests
+                                                .anyRequest().permitAll())
+                                // Resolve the caller from the jwt cookie; endpoints still decide what needs a login
+                                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                                // Throttle login and registration right after CORS, so 429s stay readable by the frontend
+                                .addFilterAfter(authRateLimitFilter, CorsFilter.class);
 
                 return http.build();
         }
+
+        // JwtFilter runs inside the security chain only, not a second time as a plain servlet filter
+        @Bean
+        public FilterRegistrationBean<JwtFilter> jwtFilterRegistration(JwtFilter filter) {
+                FilterRegistrationBean<JwtFilter> registration = new FilterRegistrationBean<>(filter);
+                registration.setEnabled(false);
+                return registration;
+        }
+
+        @Bean
+        public FilterRegistrationBean<AuthRateLimitFilter> authRateLimitFilterRegistration(AuthRateLimitFilter filter) {
+                FilterRegistrationBean<AuthRateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+                registration.setEnabled(false);
+                return registration;
+        }
 }
\ No newline at end of file
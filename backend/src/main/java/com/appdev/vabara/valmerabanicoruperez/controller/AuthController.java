@@ -1,19 +1,31 @@
 package com.appdev.vabara.valmerabanicoruperez.controller;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
 import com.appdev.vabara.valmerabanicoruperez.entity.Student;
 import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.service.AuthRateLimiter;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageService;
+import com.appdev.vabara.valmerabanicoruperez.service.PasswordHashingService;
 import com.appdev.vabara.valmerabanicoruperez.service.StudentService;
+import com.appdev.vabara.valmerabanicoruperez.service.TokenRevocationService;
 import com.appdev.vabara.valmerabanicoruperez.service.TutorService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutoringSessionService;
+import com.appdev.vabara.valmerabanicoruperez.service.UserDirectoryService;
 import com.appdev.vabara.valmerabanicoruperez.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
+import java.security.MessageDigest;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -23,11 +35,29 @@ public class AuthController {
     private final StudentService studentService;
     private final TutorService tutorService;
     private final JwtUtil jwtUtil;
-
-    public AuthController(StudentService studentService, TutorService tutorService, JwtUtil jwtUtil) {
+    private final UserDirectoryService userDirectoryService;
+    private final PasswordHashingService passwordHashingService;
+    private final AuthRateLimiter authRateLimiter;
+    private final MessageService messageService;
+    private final TutoringSessionService tutoringSessionService;
+    private final ObjectMapper objectMapper;
+    private final TokenRevocationService tokenRevocationService;
+
+    public AuthController(StudentService studentService, TutorService tutorService, JwtUtil jwtUtil,
+            UserDirectoryService userDirectoryService, PasswordHashingService passwordHashingService,
+            AuthRateLimiter authRateLimiter, MessageService messageService,
+            TutoringSessionService tutoringSessionService, ObjectMapper objectMapper,
+            TokenRevocationService tokenRevocationService) {
         this.studentService = studentService;
         this.tutorService = tutorService;
         this.jwtUtil = jwtUtil;
+        this.userDirectoryService = userDirectoryService;
+        this.passwordHashingService = passwordHashingService;
+        this.authRateLimiter = authRateLimiter;
+        this.messageService = messageService;
+        this.tutoringSessionService = tutoringSessionService;
+        this.objectMapper = objectMapper;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @PostMapping("/login")
@@ -37,32 +67,36 @@ public class AuthController {
 
         Map<String, Object> response = new HashMap<>();
 
+        if (!authRateLimiter.tryAcquireEmail(email)) {
+            return tooManyAttempts();
+        }
+
         try {
-            String userType = null;
+            // One directory lookup tells us whether this is a student or a tutor
+            AuthenticatedUser identity = userDirectoryService.lookup(email).orElse(null);
             boolean authenticated = false;
 
-            // Check if user is a student
-            java.util.Optional<Student> studentOpt = studentService.getStudentRepository().findByEmail(email);
-            if (studentOpt.isPresent()) {
-                Student student = studentOpt.get();
-                // In production, use password hashing (BCrypt)
-                if (password.equals(student.getPassword())) {
-                    userType = "student";
-                    authenticated = true;
-                }
-            }
-
-            // If not found as student, check if user is a tutor
-            if (!authenticated) {
-                java.util.Optional<TutorEntity> tutorOpt = tutorService.getTutorRepository().findByEmail(email);
-                if (tutorOpt.isPresent()) {
-                    TutorEntity tutor = tutorOpt.get();
-                    // In production, use password hashing (BCrypt)
-                    if (password.equals(tutor.getPassword())) {
-                        userType = "tutor";
-                        authenticated = true;
+            if (identity != null) {
+                String storedPassword = identity.isTutor()
+                        ? tutorService.getTutorRepository().findPasswordById(identity.getUserId())
+                        : studentService.getStudentRepository().findPasswordById(identity.getUserId());
+                PasswordHashingService.Verification verification =
+                        passwordHashingService.verify(password, storedPassword);
+                authenticated = verification.matches();
+
+                // Replace plain text or outdated hashes now that we know the password
+                if (authenticated && verification.getUpgradedHash() != null) {
+                    if (identity.isTutor()) {
+                        tutorService.getTutorRepository().updatePassword(identity.getUserId(),
+                                verification.getUpgradedHash());
+                    } else {
+                        studentService.getStudentRepository().updatePassword(identity.getUserId(),
+                                verification.getUpgradedHash());
                     }
                 }
+            } else {
+                // Do the same hashing work for unknown emails so response time does not give them away
+                passwordHashingService.verifyDummy(password);
             }
 
             if (!authenticated) {
@@ -72,7 +106,9 @@ public class AuthController {
             }
 
             // Generate JWT token
-            String token = jwtUtil.generateToken(email, userType);
+            String userType = identity.getRole();
+            String token = jwtUtil.generateToken(identity.getEmail(), userType, identity.getUserId(),
+                    identity.getName());
 
             // Create response cookie
             ResponseCookie cookie = ResponseCookie.from("jwt", token)
@@ -90,6 +126,8 @@ public class AuthController {
             return ResponseEntity.ok()
                     .header(HttpHeaders.SET_COOKIE, cookie.toString())
                     .body(response);
+        } catch (RejectedExecutionException e) {
+            return serverBusy();
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "An error occurred during login: " + e.getMessage());
@@ -99,6 +137,9 @@ public class AuthController {
 
     @PostMapping("/register/student")
     public ResponseEntity<Map<String, Object>> registerStudent(@RequestBody Student student) {
+        if (!authRateLimiter.tryAcquireEmail(student.getEmail())) {
+            return tooManyAttempts();
+        }
         try {
             Student savedStudent = studentService.addStudent(student);
             Map<String, Object> response = new HashMap<>();
@@ -106,6 +147,8 @@ public class AuthController {
             response.put("user", savedStudent);
             response.put("message", "Student registered successfully");
             return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            return serverBusy();
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -116,6 +159,9 @@ public class AuthController {
 
     @PostMapping("/register/tutor")
     public ResponseEntity<Map<String, Object>> registerTutor(@RequestBody TutorEntity tutor) {
+        if (!authRateLimiter.tryAcquireEmail(tutor.getEmail())) {
+            return tooManyAttempts();
+        }
         try {
             TutorEntity savedTutor = tutorService.addTutor(tutor);
             Map<String, Object> response = new HashMap<>();
@@ -123,6 +169,8 @@ public class AuthController {
             response.put("user", savedTutor);
             response.put("message", "Tutor registered successfully");
             return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            return serverBusy();
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -132,110 +180,157 @@ public class AuthController {
     }
 
     @GetMapping("/status")
-    public ResponseEntity<Map<String, Object>> status(HttpServletRequest request) {
+    public ResponseEntity<Map<String, Object>> status(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         Map<String, Object> response = new HashMap<>();
-        try {
-            // Extract user information from JWT token
-            String token = jwtUtil.extractTokenFromRequest(request);
-            if (token != null && jwtUtil.validateToken(token)) {
-                String email = jwtUtil.extractEmail(token);
-                String userType = jwtUtil.extractUserType(token);
+        if (currentUser == null) {
+            response.put("authenticated", false);
+            return ResponseEntity.status(401).body(response);
+        }
 
-                response.put("authenticated", true);
-                response.put("email", email);
-                response.put("role", userType);
-
-                // Fetch actual user data from database
-                if ("student".equals(userType)) {
-                    java.util.Optional<Student> studentOpt = studentService.getStudentRepository().findByEmail(email);
-                    if (studentOpt.isPresent()) {
-                        Student student = studentOpt.get();
-                        response.put("userId", student.getId());
-                        response.put("name", student.getName());
-                    }
-                } else if ("tutor".equals(userType)) {
-                    java.util.Optional<TutorEntity> tutorOpt = tutorService.getTutorRepository().findByEmail(email);
-                    if (tutorOpt.isPresent()) {
-                        TutorEntity tutor = tutorOpt.get();
-                        response.put("userId", tutor.getTutorId());
-                        response.put("name", tutor.getName());
-                    }
-                }
+        response.put("authenticated", true);
+        response.put("email", currentUser.getEmail());
+        response.put("role", currentUser.getRole());
+        response.put("userId", currentUser.getUserId());
+        response.put("name", currentUser.getName());
+        return ResponseEntity.ok(response);
+    }
 
+    @GetMapping("/current-user")
+    public ResponseEntity<Map<String, Object>> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (currentUser != null) {
+                response.put("email", currentUser.getEmail());
+                response.put("userType", currentUser.getRole());
+                response.put("authenticated", true);
+                response.put("user", loadProfile(currentUser));
                 return ResponseEntity.ok(response);
             } else {
                 response.put("authenticated", false);
+                response.put("message", "Invalid or missing token");
                 return ResponseEntity.status(401).body(response);
             }
         } catch (Exception e) {
             response.put("authenticated", false);
-            response.put("error", e.getMessage());
+            response.put("message", "Error fetching user data: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
-    @GetMapping("/current-user")
-    public ResponseEntity<Map<String, Object>> getCurrentUser(HttpServletRequest request) {
+    // Everything a page needs on load in one response: identity (same fields as /status), profile
+    // (same as /current-user) and counters. The ETag is a hash of the body, so revalidating an
+    // unchanged session returns 304 without a payload.
+    @GetMapping("/session")
+    public ResponseEntity<Map<String, Object>> getSession(@AuthenticationPrincipal AuthenticatedUser currentUser,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Map<String, Object> response = new HashMap<>();
-        try {
-            // Extract user information from JWT token
-            String token = jwtUtil.extractTokenFromRequest(request);
-            if (token != null && jwtUtil.validateToken(token)) {
-                String email = jwtUtil.extractEmail(token);
-                String userType = jwtUtil.extractUserType(token);
-
-                response.put("email", email);
-                response.put("userType", userType);
-                response.put("authenticated", true);
-
-                // Fetch actual user data from database
-                Map<String, Object> user = new HashMap<>();
-                
-                if ("student".equals(userType)) {
-                    java.util.Optional<Student> studentOpt = studentService.getStudentRepository().findByEmail(email);
-                    if (studentOpt.isPresent()) {
-                        Student student = studentOpt.get();
-                        user.put("id", student.getId());
-                        user.put("name", student.getName());
-                        user.put("email", student.getEmail());
-                        user.put("phoneNumber", ""); // Students don't have phone number in current model
-                        user.put("bio", "");
-                        user.put("education", "");
-                        user.put("yearsOfExperience", 0);
-                        user.put("subjects", new String[] {});
-                    }
-                } else if ("tutor".equals(userType)) {
-                    java.util.Optional<TutorEntity> tutorOpt = tutorService.getTutorRepository().findByEmail(email);
-                    if (tutorOpt.isPresent()) {
-                        TutorEntity tutor = tutorOpt.get();
-                        user.put("id", tutor.getTutorId());
-                        user.put("name", tutor.getName());
-                        user.put("email", tutor.getEmail());
-                        user.put("phoneNumber", ""); // Tutors don't have phone number in current model
-                        user.put("bio", "");
-                        user.put("education", tutor.getInstitution());
-                        user.put("yearsOfExperience", tutor.getExperience());
-                        user.put("subjects", tutor.getExpertiseSubjects() != null ? 
-                            tutor.getExpertiseSubjects().split(",") : new String[] {});
-                    }
-                }
+        if (currentUser == null) {
+            response.put("authenticated", false);
+            return ResponseEntity.status(401).body(response);
+        }
 
-                response.put("user", user);
-                return ResponseEntity.ok(response);
-            } else {
-                response.put("authenticated", false);
-                response.put("message", "Invalid or missing token");
-                return ResponseEntity.status(401).body(response);
+        try {
+            Map<String, Object> counters = new HashMap<>(
+                    tutoringSessionService.getSessionCounters(currentUser.getRole(), currentUser.getUserId()));
+            counters.put("unreadMessages", messageService.countUnread(currentUser));
+
+            response.put("authenticated", true);
+            response.put("email", currentUser.getEmail());
+            response.put("role", currentUser.getRole());
+            response.put("userType", currentUser.getRole());
+            response.put("userId", currentUser.getUserId());
+            response.put("name", currentUser.getName());
+            response.put("user", loadProfile(currentUser));
+            response.put("counters", counters);
+
+            String etag = contentETag(response);
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(304).eTag(etag).build();
             }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(response);
         } catch (Exception e) {
+            response.clear();
             response.put("authenticated", false);
-            response.put("message", "Error fetching user data: " + e.getMessage());
+            response.put("message", "Error loading session: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    // Profile summary of the current user
+    private Map<String, Object> loadProfile(AuthenticatedUser currentUser) {
+        Map<String, Object> user = new HashMap<>();
+
+        if (currentUser.isStudent()) {
+            java.util.Optional<Student> studentOpt = studentService.getStudentRepository()
+                    .findById(currentUser.getUserId());
+            if (studentOpt.isPresent()) {
+                Student student = studentOpt.get();
+                user.put("id", student.getId());
+                user.put("name", student.getName());
+                user.put("email", student.getEmail());
+                user.put("phoneNumber", ""); // Students don't have phone number in current model
+                user.put("bio", "");
+                user.put("education", "");
+                user.put("yearsOfExperience", 0);
+                user.put("subjects", new String[] {});
+                user.put("profilePictureHash", student.getProfilePictureHash());
+            }
+        } else if (currentUser.isTutor()) {
+            java.util.Optional<TutorEntity> tutorOpt = tutorService.getTutorRepository()
+                    .findById(currentUser.getUserId());
+            if (tutorOpt.isPresent()) {
+                TutorEntity tutor = tutorOpt.get();
+                user.put("id", tutor.getTutorId());
+                user.put("name", tutor.getName());
+                user.put("email", tutor.getEmail());
+                user.put("phoneNumber", ""); // Tutors don't have phone number in current model
+                user.put("bio", "");
+                user.put("education", tutor.getInstitution());
+                user.put("yearsOfExperience", tutor.getExperience());
+                user.put("subjects", tutor.getExpertiseSubjects() != null ?
+                    tutor.getExpertiseSubjects().split(",") : new String[] {});
+                user.put("profilePictureHash", tutor.getProfilePictureHash());
+            }
+        }
+        return user;
+    }
+
+    // Strong validator: SHA-256 of the serialized body
+    private String contentETag(Map<String, Object> body) throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+    }
+
+    private ResponseEntity<Map<String, Object>> tooManyAttempts() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Too many attempts, please try again later");
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(authRateLimiter.emailRetryAfterSeconds()))
+                .body(response);
+    }
+
+    // Password hashing is saturated; the client should retry shortly
+    private ResponseEntity<Map<String, Object>> serverBusy() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "Server is busy, please try again shortly");
+        return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "1").body(response);
+    }
+
     @PostMapping("/logout")
-    public ResponseEntity<Map<String, Object>> logout(HttpServletResponse response) {
+    public ResponseEntity<Map<String, Object>> logout(@CookieValue(name = "jwt", required = false) String token) {
+        // Revoke the token itself, so a copy of it stops working too
+        if (token != null && !token.isEmpty()) {
+            Claims claims = jwtUtil.getVerifiedClaims(token);
+            if (claims != null) {
+                tokenRevocationService.revoke(token, claims.getExpiration());
+            }
+        }
+
         // Clear the JWT cookie
         ResponseCookie cookie = ResponseCookie.from("jwt", "")
                 .httpOnly(true)
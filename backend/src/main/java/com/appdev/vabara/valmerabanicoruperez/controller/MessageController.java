@@ -1,20 +1,36 @@
 package com.appdev.vabara.valmerabanicoruperez.controller;
 
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
 import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
 import com.appdev.vabara.valmerabanicoruperez.entity.Message;
-import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
 import com.appdev.vabara.valmerabanicoruperez.repository.ConversationRepository;
 import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
-import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
-import com.appdev.vabara.valmerabanicoruperez.util.JwtUtil;
-import jakarta.servlet.http.Cookie;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageArchiveService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageLongPollService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageSearchIndex;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageStreamService;
+import com.appdev.vabara.valmerabanicoruperez.service.PresenceRegistry;
+import com.appdev.vabara.valmerabanicoruperez.service.TranscriptExportService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutorService;
+import com.appdev.vabara.valmerabanicoruperez.util.MessageMapper;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -23,58 +39,60 @@ public class MessageController {
 
     private final MessageRepository messageRepository;
     private final ConversationRepository conversationRepository;
-    private final TutorRepository tutorRepository;
-    private final JwtUtil jwtUtil;
+    private final MessageService messageService;
+    private final MessageSearchIndex messageSearchIndex;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageStreamService messageStreamService;
+    private final MessageLongPollService messageLongPollService;
+    private final TranscriptExportService transcriptExportService;
+    private final PresenceRegistry presenceRegistry;
+    private final MessageBus messageBus;
+    private final TutorService tutorService;
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_LONG_POLL_SECONDS = 30;
 
     public MessageController(MessageRepository messageRepository,
             ConversationRepository conversationRepository,
-            TutorRepository tutorRepository,
-            JwtUtil jwtUtil) {
+            MessageService messageService,
+            MessageSearchIndex messageSearchIndex,
+            MessageArchiveService messageArchiveService,
+            MessageStreamService messageStreamService,
+            MessageLongPollService messageLongPollService,
+            TranscriptExportService transcriptExportService,
+            PresenceRegistry presenceRegistry,
+            MessageBus messageBus,
+            TutorService tutorService) {
         this.messageRepository = messageRepository;
         this.conversationRepository = conversationRepository;
-        this.tutorRepository = tutorRepository;
-        this.jwtUtil = jwtUtil;
-    }
-
-    // Get current user from JWT
-    private Map<String, String> getCurrentUser(HttpServletRequest request) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if ("jwt".equals(cookie.getName())) {
-                    try {
-                        String email = jwtUtil.extractEmail(cookie.getValue());
-                        String userType = jwtUtil.extractUserType(cookie.getValue());
-                        Map<String, String> user = new HashMap<>();
-                        user.put("email", email);
-                        user.put("userType", userType);
-                        return user;
-                    } catch (Exception e) {
-                        return null;
-                    }
-                }
-            }
-        }
-        return null;
+        this.messageService = messageService;
+        this.messageSearchIndex = messageSearchIndex;
+        this.messageArchiveService = messageArchiveService;
+        this.messageStreamService = messageStreamService;
+        this.messageLongPollService = messageLongPollService;
+        this.transcriptExportService = transcriptExportService;
+        this.presenceRegistry = presenceRegistry;
+        this.messageBus = messageBus;
+        this.tutorService = tutorService;
     }
 
     // Create a new conversation
     @PostMapping("/conversations")
     public ResponseEntity<Map<String, Object>> createConversation(
             @RequestBody Map<String, Object> request,
-            HttpServletRequest httpRequest) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Map<String, String> currentUser = getCurrentUser(httpRequest);
             if (currentUser == null) {
                 response.put("success", false);
                 response.put("message", "Unauthorized");
                 return ResponseEntity.status(401).body(response);
             }
 
-            String studentEmail = currentUser.get("email");
+            String studentEmail = currentUser.getEmail();
             Long tutorId = Long.valueOf(request.get("tutorId").toString());
             String tutorName = (String) request.get("tutorName");
             String tutorSubject = (String) request.get("tutorSubject");
@@ -84,7 +102,8 @@ public class MessageController {
                     tutorId);
             if (existing.isPresent()) {
                 response.put("success", true);
-                response.put("data", convertConversationToMap(existing.get()));
+                response.put("data", convertConversationToMap(existing.get(), currentUser.getRole(),
+                        tutorService.getAvatarHashes(List.of(tutorId))));
                 response.put("message", "Conversation already exists");
                 return ResponseEntity.ok(response);
             }
@@ -92,9 +111,11 @@ public class MessageController {
             // Create new conversation
             Conversation conversation = new Conversation(studentEmail, tutorId, tutorName, tutorSubject);
             conversation = conversationRepository.save(conversation);
+            messageBus.publish(ConversationEvent.conversationCreated(conversation));
 
             response.put("success", true);
-            response.put("data", convertConversationToMap(conversation));
+            response.put("data", convertConversationToMap(conversation, currentUser.getRole(),
+                    tutorService.getAvatarHashes(List.of(tutorId))));
             response.put("message", "Conversation created successfully");
             return ResponseEntity.ok(response);
 
@@ -107,38 +128,31 @@ public class MessageController {
 
     // Get all conversations for current user
     @GetMapping("/conversations")
-    public ResponseEntity<Map<String, Object>> getConversations(HttpServletRequest request) {
+    public ResponseEntity<Map<String, Object>> getConversations(
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Map<String, String> currentUser = getCurrentUser(request);
             if (currentUser == null) {
                 response.put("success", false);
                 response.put("message", "Unauthorized");
                 return ResponseEntity.status(401).body(response);
             }
 
-            String email = currentUser.get("email");
-            String userType = currentUser.get("userType");
-
-            List<Conversation> conversations;
-            if ("student".equals(userType)) {
-                conversations = conversationRepository.findByStudentEmailOrderByLastMessageAtDesc(email);
-            } else {
-                // For tutors, find their tutor ID first
-                Optional<TutorEntity> tutorOpt = tutorRepository.findByEmail(email);
-                if (tutorOpt.isEmpty()) {
-                    response.put("success", true);
-                    response.put("data", new ArrayList<>());
-                    return ResponseEntity.ok(response);
-                }
-                conversations = conversationRepository
-                        .findByTutorIdOrderByLastMessageAtDesc(tutorOpt.get().getTutorId());
+            String userType = currentUser.getRole();
+
+            List<Conversation> conversations = messageService.loadInbox(currentUser);
+
+            // Every tutor's avatar thumbnail in one query
+            Set<Long> tutorIds = new HashSet<>();
+            for (Conversation conv : conversations) {
+                tutorIds.add(conv.getTutorId());
             }
+            Map<Long, String> avatars = tutorService.getAvatarHashes(tutorIds);
 
             List<Map<String, Object>> conversationMaps = new ArrayList<>();
             for (Conversation conv : conversations) {
-                conversationMaps.add(convertConversationToMap(conv));
+                conversationMaps.add(convertConversationToMap(conv, userType, avatars));
             }
 
             response.put("success", true);
@@ -152,33 +166,62 @@ public class MessageController {
         }
     }
 
-    // Get messages for a conversation
+    // Get a page of messages for a conversation. Without a cursor the newest page is
+    // returned; pass the previous response's nextCursor as "before" to load older history.
     @GetMapping("/conversations/{conversationId}/messages")
     public ResponseEntity<Map<String, Object>> getMessages(
             @PathVariable Long conversationId,
-            HttpServletRequest request) {
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Map<String, String> currentUser = getCurrentUser(request);
             if (currentUser == null) {
                 response.put("success", false);
                 response.put("message", "Unauthorized");
                 return ResponseEntity.status(401).body(response);
             }
 
-            List<Message> messages = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
+            if (messageService.findForParticipant(conversationId, currentUser).isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Not a participant in this conversation");
+                return ResponseEntity.status(403).body(response);
+            }
+
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+            // Fetch one extra row to find out whether older history exists
+            Pageable page = PageRequest.of(0, pageSize + 1);
+            List<Message> messages = before == null
+                    ? messageRepository.findByConversationIdOrderByIdDesc(conversationId, page)
+                    : messageRepository.findByConversationIdAndIdLessThanOrderByIdDesc(conversationId, before, page);
+
+            // Older history continues in the archive once the table runs out
+            if (messages.size() <= pageSize && messageArchiveService.hasArchive(conversationId)) {
+                Long archiveCursor = messages.isEmpty() ? before : messages.get(messages.size() - 1).getId();
+                messages = new ArrayList<>(messages);
+                messages.addAll(messageArchiveService.readBefore(conversationId, archiveCursor,
+                        pageSize + 1 - messages.size()));
+            }
+
+            boolean hasMore = messages.size() > pageSize;
+            if (hasMore) {
+                messages = messages.subList(0, pageSize);
+            }
 
             List<Map<String, Object>> messageMaps = new ArrayList<>();
-            String currentUserEmail = currentUser.get("email");
+            String currentUserEmail = currentUser.getEmail();
 
-            for (Message msg : messages) {
-                messageMaps.add(convertMessageToMap(msg, currentUserEmail));
+            // Rows come back newest first; the client renders oldest first
+            for (int i = messages.size() - 1; i >= 0; i--) {
+                messageMaps.add(MessageMapper.toMap(messages.get(i), currentUserEmail));
             }
 
             response.put("success", true);
             response.put("data", messageMaps);
+            response.put("hasMore", hasMore);
+            response.put("nextCursor", hasMore ? messages.get(messages.size() - 1).getId() : null);
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
@@ -188,17 +231,99 @@ public class MessageController {
         }
     }
 
+    // Messages newer than the "after" cursor. With nothing new the request either answers at once
+    // or, when "wait" is given, is held for up to that many seconds until a message arrives. Either way
+    // "nothing new" is a 304 only when If-None-Match carries the current ETag.
+    @GetMapping("/conversations/{conversationId}/messages/since")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getMessagesSince(
+            @PathVariable Long conversationId,
+            @RequestParam(defaultValue = "0") Long after,
+            @RequestParam(defaultValue = "0") int wait,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request) {
+
+        int waitSeconds = Math.max(0, Math.min(wait, MAX_LONG_POLL_SECONDS));
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(Math.max(waitSeconds, 1)));
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (currentUser == null) {
+                response.put("success", false);
+                response.put("message", "Unauthorized");
+                result.setResult(ResponseEntity.status(401).body(response));
+                return result;
+            }
+            if (messageService.findForParticipant(conversationId, currentUser).isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Not a participant in this conversation");
+                result.setResult(ResponseEntity.status(403).body(response));
+                return result;
+            }
+
+            String email = currentUser.getEmail();
+            String unchangedTag = syncETag(conversationId, after);
+            String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+            // Register before querying so a message sent in between is not missed. When too many
+            // requests are parked already, this one is answered at once like a plain poll. The message
+            // that wakes the request need not be the oldest one past the cursor (events from several
+            // nodes or late commits arrive out of id order), so the answer is read again from the table.
+            Runnable cancel = waitSeconds > 0
+                    ? messageLongPollService.await(conversationId, after, message -> {
+                        List<Message> since = messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(
+                                conversationId, after, PageRequest.of(0, MAX_PAGE_SIZE));
+                        result.setResult(deltaResponse(conversationId, since.isEmpty() ? List.of(message) : since,
+                                email));
+                    })
+                    : null;
+            if (cancel != null) {
+                result.onCompletion(cancel);
+                result.onTimeout(() -> result.setResult(noChangeResponse(unchangedTag, after, ifNoneMatch)));
+            }
+
+            List<Message> messages = messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(
+                    conversationId, after, PageRequest.of(0, MAX_PAGE_SIZE));
+            if (!messages.isEmpty()) {
+                result.setResult(deltaResponse(conversationId, messages, email));
+            } else if (cancel == null) {
+                result.setResult(noChangeResponse(unchangedTag, after, ifNoneMatch));
+            }
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error fetching messages: " + e.getMessage());
+            result.setResult(ResponseEntity.status(500).body(response));
+        }
+        return result;
+    }
+
+    // Subscribe to new messages in a conversation (Server-Sent Events)
+    @GetMapping(value = "/conversations/{conversationId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages(
+            @PathVariable Long conversationId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        // Only the conversation's student and tutor may follow it
+        if (messageService.findForParticipant(conversationId, currentUser).isEmpty()) {
+            return ResponseEntity.status(403).build();
+        }
+
+        return ResponseEntity.ok(messageStreamService.subscribe(conversationId, currentUser.getEmail()));
+    }
+
     // Send a message
     @PostMapping("/conversations/{conversationId}/messages")
     public ResponseEntity<Map<String, Object>> sendMessage(
             @PathVariable Long conversationId,
             @RequestBody Map<String, String> request,
-            HttpServletRequest httpRequest) {
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
 
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Map<String, String> currentUser = getCurrentUser(httpRequest);
             if (currentUser == null) {
                 response.put("success", false);
                 response.put("message", "Unauthorized");
@@ -212,24 +337,32 @@ public class MessageController {
                 return ResponseEntity.status(400).body(response);
             }
 
-            String senderEmail = currentUser.get("email");
-            String senderType = currentUser.get("userType");
+            Optional<Conversation> conversation = conversationRepository.findById(conversationId);
+            if (conversation.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Conversation not found");
+                return ResponseEntity.status(404).body(response);
+            }
 
-            // Create and save message
-            Message message = new Message(conversationId, senderEmail, senderType, messageText);
-            message = messageRepository.save(message);
-
-            // Update conversation's last message
-            Optional<Conversation> convOpt = conversationRepository.findById(conversationId);
-            if (convOpt.isPresent()) {
-                Conversation conv = convOpt.get();
-                conv.setLastMessageText(messageText.length() > 50 ? messageText.substring(0, 50) + "..." : messageText);
-                conv.setLastMessageAt(LocalDateTime.now());
-                conversationRepository.save(conv);
+            // The sender's side comes from the conversation, not from the role in the token
+            String senderType = MessageService.participantSide(conversation.get(), currentUser);
+            if (senderType == null) {
+                response.put("success", false);
+                response.put("message", "Not a participant in this conversation");
+                return ResponseEntity.status(403).body(response);
             }
 
+            String senderEmail = currentUser.getEmail();
+
+            // Save message and update the conversation summary and unread counter
+            Message message = new Message(conversationId, senderEmail, senderType, messageText);
+            message = messageService.sendMessage(message);
+
+            // Fan out to streams, long polls, the search index and inbox caches on every node
+            messageBus.publish(ConversationEvent.messageSent(message));
+
             response.put("success", true);
-            response.put("data", convertMessageToMap(message, senderEmail));
+            response.put("data", MessageMapper.toMap(message, senderEmail));
             response.put("message", "Message sent successfully");
             return ResponseEntity.ok(response);
 
@@ -240,48 +373,179 @@ public class MessageController {
         }
     }
 
+    // Mark a conversation as read by the current user
+    @PostMapping("/conversations/{conversationId}/read")
+    public ResponseEntity<Map<String, Object>> markConversationRead(
+            @PathVariable Long conversationId,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (currentUser == null) {
+                response.put("success", false);
+                response.put("message", "Unauthorized");
+                return ResponseEntity.status(401).body(response);
+            }
+
+            Optional<Conversation> conversation = messageService.findForParticipant(conversationId, currentUser);
+            if (conversation.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Not a participant in this conversation");
+                return ResponseEntity.status(403).body(response);
+            }
+
+            // The side to clear comes from the conversation, not from the role in the token
+            String readerType = MessageService.participantSide(conversation.get(), currentUser);
+            messageService.markConversationRead(conversationId, readerType);
+            messageBus.publish(ConversationEvent.conversationRead(conversationId, readerType));
+
+            response.put("success", true);
+            response.put("message", "Conversation marked as read");
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error marking conversation as read: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    // Download the full transcript of a conversation as JSON Lines (default) or CSV
+    @GetMapping("/conversations/{conversationId}/export")
+    public ResponseEntity<StreamingResponseBody> exportTranscript(
+            @PathVariable Long conversationId,
+            @RequestParam(defaultValue = "jsonl") String format,
+            @AuthenticationPrincipal AuthenticatedUser currentUser,
+            HttpServletRequest request) {
+
+        if (currentUser == null) {
+            return ResponseEntity.status(401).build();
+        }
+        if (messageService.findForParticipant(conversationId, currentUser).isEmpty()) {
+            return ResponseEntity.status(403).build();
+        }
+
+        // Downloads get their own async timeout instead of the application-wide default
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest()
+                .setTimeout(transcriptExportService.getTimeoutMs());
+        StreamingResponseBody body = out -> transcriptExportService.writeTranscript(conversationId, format, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TranscriptExportService.contentType(format)))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"conversation-" + conversationId
+                        + "." + TranscriptExportService.fileExtension(format) + "\"")
+                .body(body);
+    }
+
+    // Search the text of messages in the current user's conversations
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchMessages(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "20") int limit,
+            @AuthenticationPrincipal AuthenticatedUser currentUser) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            if (currentUser == null) {
+                response.put("success", false);
+                response.put("message", "Unauthorized");
+                return ResponseEntity.status(401).body(response);
+            }
+
+            String email = currentUser.getEmail();
+            Map<Long, Conversation> conversationsById = new HashMap<>();
+            for (Conversation conv : messageService.loadInbox(currentUser)) {
+                conversationsById.put(conv.getId(), conv);
+            }
+
+            List<MessageSearchIndex.Hit> hits = messageSearchIndex.search(query, conversationsById.keySet(),
+                    Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+            Map<Long, Message> messagesById = new HashMap<>();
+            for (Message msg : messageRepository.findAllById(
+                    hits.stream().map(MessageSearchIndex.Hit::getMessageId).toList())) {
+                messagesById.put(msg.getId(), msg);
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (MessageSearchIndex.Hit hit : hits) {
+                Message msg = messagesById.get(hit.getMessageId());
+                if (msg == null) {
+                    // Moved to the archive since it was indexed
+                    msg = messageArchiveService.readById(hit.getConversationId(), hit.getMessageId()).orElse(null);
+                }
+                if (msg == null) {
+                    continue;
+                }
+                Map<String, Object> result = MessageMapper.toMap(msg, email);
+                result.put("snippet", messageSearchIndex.highlight(msg.getMessageText(), query));
+                result.put("conversationName", conversationsById.get(msg.getConversationId()).getTutorName());
+                results.add(result);
+            }
+
+            response.put("success", true);
+            response.put("data", results);
+            response.put("complete", messageSearchIndex.isReady());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Error searching messages: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     // Helper methods
-    private Map<String, Object> convertConversationToMap(Conversation conv) {
+    private ResponseEntity<Map<String, Object>> noChangeResponse(String unchangedTag, Long after,
+            String ifNoneMatch) {
+        if (unchangedTag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(304).eTag(unchangedTag).build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", new ArrayList<>());
+        response.put("cursor", after);
+        return ResponseEntity.ok().eTag(unchangedTag).body(response);
+    }
+
+    private ResponseEntity<Map<String, Object>> deltaResponse(Long conversationId, List<Message> messages,
+            String currentUserEmail) {
+        List<Map<String, Object>> messageMaps = new ArrayList<>();
+        for (Message msg : messages) {
+            messageMaps.add(MessageMapper.toMap(msg, currentUserEmail));
+        }
+        Long cursor = messages.get(messages.size() - 1).getId();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", messageMaps);
+        response.put("cursor", cursor);
+        return ResponseEntity.ok().eTag(syncETag(conversationId, cursor)).body(response);
+    }
+
+    private String syncETag(Long conversationId, Long cursor) {
+        return "\"conv-" + conversationId + "-" + cursor + "\"";
+    }
+
+    private Map<String, Object> convertConversationToMap(Conversation conv, String viewerType,
+            Map<Long, String> avatars) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", conv.getId());
         map.put("tutorId", conv.getTutorId());
         map.put("studentEmail", conv.getStudentEmail());
         map.put("name", conv.getTutorName());
+        map.put("avatarHash", avatars.get(conv.getTutorId()));
         map.put("role", conv.getTutorSubject() != null ? conv.getTutorSubject() : "Tutor");
-        map.put("status", "Online now");
+        // Presence of the other participant
+        boolean online = presenceRegistry.isOnline("student".equals(viewerType)
+                ? PresenceRegistry.tutorKey(conv.getTutorId())
+                : PresenceRegistry.studentKey(conv.getStudentEmail()));
+        map.put("online", online);
+        map.put("status", online ? "Online now" : "Offline");
         map.put("lastMessage",
                 conv.getLastMessageText() != null ? conv.getLastMessageText() : "Start a conversation...");
-        map.put("time", formatTime(conv.getLastMessageAt()));
-        map.put("unread", 0);
-        return map;
-    }
-
-    private Map<String, Object> convertMessageToMap(Message msg, String currentUserEmail) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("id", msg.getId());
-        map.put("sender", msg.getSenderEmail());
-        map.put("text", msg.getMessageText());
-        map.put("time", formatTime(msg.getCreatedAt()));
-        map.put("isMe", msg.getSenderEmail().equals(currentUserEmail));
-        map.put("userType", msg.getSenderType());
+        map.put("time", MessageMapper.formatTime(conv.getLastMessageAt()));
+        map.put("unread", conv.getUnreadFor(viewerType));
         return map;
     }
-
-    private String formatTime(LocalDateTime dateTime) {
-        if (dateTime == null)
-            return "Just now";
-
-        LocalDateTime now = LocalDateTime.now();
-        long hoursDiff = java.time.Duration.between(dateTime, now).toHours();
-
-        if (hoursDiff < 1) {
-            return "Just now";
-        } else if (hoursDiff < 24) {
-            return dateTime.format(DateTimeFormatter.ofPattern("h:mm a"));
-        } else if (hoursDiff < 48) {
-            return "Yesterday";
-        } else {
-            return dateTime.format(DateTimeFormatter.ofPattern("MMM d"));
-        }
-    }
 }
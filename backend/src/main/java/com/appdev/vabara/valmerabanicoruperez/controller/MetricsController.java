@@ -0,0 +1,81 @@
+package com.appdev.vabara.valmerabanicoruperez.controller;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.service.AuthRateLimiter;
+import com.appdev.vabara.valmerabanicoruperez.service.InboxCache;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageSearchIndex;
+import com.appdev.vabara.valmerabanicoruperez.service.PasswordHashingService;
+import com.appdev.vabara.valmerabanicoruperez.service.PresenceRegistry;
+import com.appdev.vabara.valmerabanicoruperez.service.ThumbnailService;
+import com.appdev.vabara.valmerabanicoruperez.service.TokenRevocationService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutorSearchIndex;
+import com.appdev.vabara.valmerabanicoruperez.service.UserDirectoryService;
+import com.appdev.vabara.valmerabanicoruperez.util.JwtKeyring;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Runtime counters of the in-process caches and limiters. They describe load and traffic on the
+// node, so only signed-in callers get them.
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final InboxCache inboxCache;
+    private final MessageSearchIndex messageSearchIndex;
+    private final MessageBus messageBus;
+    private final PresenceRegistry presenceRegistry;
+    private final UserDirectoryService userDirectoryService;
+    private final PasswordHashingService passwordHashingService;
+    private final AuthRateLimiter authRateLimiter;
+    private final JwtKeyring jwtKeyring;
+    private final TokenRevocationService tokenRevocationService;
+    private final TutorSearchIndex tutorSearchIndex;
+    private final ThumbnailService thumbnailService;
+
+    public MetricsController(InboxCache inboxCache, MessageSearchIndex messageSearchIndex, MessageBus messageBus,
+            PresenceRegistry presenceRegistry,
+            UserDirectoryService userDirectoryService, PasswordHashingService passwordHashingService,
+            AuthRateLimiter authRateLimiter, JwtKeyring jwtKeyring, TokenRevocationService tokenRevocationService,
+            TutorSearchIndex tutorSearchIndex, ThumbnailService thumbnailService) {
+        this.inboxCache = inboxCache;
+        this.messageSearchIndex = messageSearchIndex;
+        this.messageBus = messageBus;
+        this.presenceRegistry = presenceRegistry;
+        this.userDirectoryService = userDirectoryService;
+        this.passwordHashingService = passwordHashingService;
+        this.authRateLimiter = authRateLimiter;
+        this.jwtKeyring = jwtKeyring;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tutorSearchIndex = tutorSearchIndex;
+        this.thumbnailService = thumbnailService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getMetrics(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Map<String, Object> metrics = new HashMap<>();
+        if (currentUser == null) {
+            metrics.put("success", false);
+            metrics.put("message", "Unauthorized");
+            return ResponseEntity.status(401).body(metrics);
+        }
+        metrics.put("inboxCache", inboxCache.getStats());
+        metrics.put("messageSearchIndex", messageSearchIndex.getStats());
+        metrics.put("busDroppedEvents", messageBus.getDroppedCount());
+        metrics.put("presenceTracked", presenceRegistry.getTrackedCount());
+        metrics.put("userDirectorySize", userDirectoryService.size());
+        metrics.put("passwordHashing", passwordHashingService.getStats());
+        metrics.put("authRateLimit", authRateLimiter.getStats());
+        metrics.put("jwtKeys", jwtKeyring.getStats());
+        metrics.put("tokenRevocation", tokenRevocationService.getStats());
+        metrics.put("tutorSearchIndex", tutorSearchIndex.getStats());
+        metrics.put("thumbnails", thumbnailService.getStats());
+        return ResponseEntity.ok(metrics);
+    }
+}
@@ -0,0 +1,55 @@
+package com.appdev.vabara.valmerabanicoruperez.controller;
+
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.service.PresenceRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/presence")
+@CrossOrigin(origins = "http://localhost:3000", allowCredentials = "true")
+public class PresenceController {
+
+    private final PresenceRegistry presenceRegistry;
+
+    public PresenceController(PresenceRegistry presenceRegistry) {
+        this.presenceRegistry = presenceRegistry;
+    }
+
+    // Sent periodically by the frontend while the user has the app open
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Map<String, Object>> heartbeat(@AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (currentUser == null) {
+            response.put("success", false);
+            response.put("message", "Unauthorized");
+            return ResponseEntity.status(401).body(response);
+        }
+
+        presenceRegistry.heartbeat(currentUser.isTutor()
+                ? PresenceRegistry.tutorKey(currentUser.getUserId())
+                : PresenceRegistry.studentKey(currentUser.getEmail()));
+
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    // Ids of tutors currently online, for the tutor catalog
+    @GetMapping("/tutors")
+    public ResponseEntity<List<Long>> getOnlineTutors() {
+        List<Long> tutorIds = new ArrayList<>();
+        for (String key : presenceRegistry.onlineKeys()) {
+            if (key.startsWith("tutor:")) {
+                tutorIds.add(Long.valueOf(key.substring("tutor:".length())));
+            }
+        }
+        return ResponseEntity.ok(tutorIds);
+    }
+}
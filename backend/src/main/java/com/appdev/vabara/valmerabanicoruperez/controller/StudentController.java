@@ -1,20 +1,29 @@
 package com.appdev.vabara.valmerabanicoruperez.controller;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
 import com.appdev.vabara.valmerabanicoruperez.entity.Student;
+import com.appdev.vabara.valmerabanicoruperez.service.ProfilePictureService;
 import com.appdev.vabara.valmerabanicoruperez.service.StudentService;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
-@RequestMapping("/students")
+@RequestMapping({ "/students", "/api/students" })
 public class StudentController {
 
     private final StudentService studentService;
+    private final ProfilePictureService profilePictureService;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, ProfilePictureService profilePictureService) {
         this.studentService = studentService;
+        this.profilePictureService = profilePictureService;
     }
 
     @PostMapping
@@ -35,6 +44,33 @@ public class StudentController {
         return ResponseEntity.ok(updatedStudent);
     }
 
+    // Multipart upload ("file"); only the student themselves may change their picture
+    @PostMapping("/{id}/profile-picture")
+    public ResponseEntity<Map<String, Object>> uploadProfilePicture(@PathVariable Long id,
+            @RequestParam("file") MultipartFile file, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Map<String, Object> response = new HashMap<>();
+        if (currentUser == null || !currentUser.isStudent() || !id.equals(currentUser.getUserId())) {
+            response.put("success", false);
+            response.put("message", "Not allowed to change this profile picture");
+            return ResponseEntity.status(403).body(response);
+        }
+        try {
+            String hash = profilePictureService.updateStudentPicture(id, file);
+            response.put("success", true);
+            response.put("profilePictureHash", hash);
+            response.put("profilePictureUrl", "/api/blobs/" + hash);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Could not store the picture");
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteStudent(@PathVariable Long id) {
         studentService.deleteStudent(id);
@@ -1,14 +1,25 @@
 package com.appdev.vabara.valmerabanicoruperez.controller;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
 import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.service.ProfilePictureService;
 import com.appdev.vabara.valmerabanicoruperez.service.TutorService;
 import com.appdev.vabara.valmerabanicoruperez.service.TutoringSessionService;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
 import com.appdev.vabara.valmerabanicoruperez.dto.TutorStatsDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
-import jakarta.servlet.http.HttpSession;
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/tutors")
@@ -17,22 +28,98 @@ public class TutorController {
 
     private final TutorService tutorService;
     private final TutoringSessionService tutoringSessionService;
+    private final ProfilePictureService profilePictureService;
 
-    public TutorController(TutorService tutorService, TutoringSessionService tutoringSessionService) {
+    public TutorController(TutorService tutorService, TutoringSessionService tutoringSessionService,
+            ProfilePictureService profilePictureService) {
         this.tutorService = tutorService;
         this.tutoringSessionService = tutoringSessionService;
+        this.profilePictureService = profilePictureService;
     }
 
+    // Catalog reads carry the catalog version as their ETag, so a client that already has the current
+    // data gets a 304. The tag is taken before the query: a write landing in between leaves the client
+    // with an older tag and a fresh body, which only costs one extra download.
+    // If-None-Match is matched by Spring, so a list of tags or a weak W/ tag counts as well
     @GetMapping
-    public ResponseEntity<List<TutorEntity>> getAllTutors() {
-        return ResponseEntity.ok(tutorService.getAllTutors());
+    public ResponseEntity<List<TutorCardDTO>> getAllTutors(HttpServletRequest request) {
+        String etag = tutorService.getCatalogETag();
+        if (notModified(request, etag)) {
+            return ResponseEntity.status(304).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(tutorService.getAllTutors());
+    }
+
+    // Filtered, sorted catalog page: ?subject=&minRate=&maxRate=&minRating=&minExperience=&location=
+    // &availability=&sort=rating|price|experience&limit=&cursor= (cursor is the previous page's nextCursor)
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchTutors(TutorSearchCriteria criteria,
+            HttpServletRequest request) {
+        String etag = tutorService.getCatalogETag();
+        if (notModified(request, etag)) {
+            return ResponseEntity.status(304).eTag(etag).build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(tutorService.searchTutors(criteria));
+            response.put("success", true);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", "Invalid search: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    // Free-text search (?q=) over subjects, names and institutions with the same filters and sorts as
+    // /search. Returns the top `limit` matches, the total and subject/availability facet counts.
+    @GetMapping("/discover")
+    public ResponseEntity<Map<String, Object>> discoverTutors(@RequestParam(value = "q", required = false) String q,
+            TutorSearchCriteria criteria,
+            HttpServletRequest request) {
+        String etag = tutorService.getCatalogETag();
+        if (notModified(request, etag)) {
+            return ResponseEntity.status(304).eTag(etag).build();
+        }
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.putAll(tutorService.discoverTutors(q, criteria));
+            response.put("success", true);
+            // Results from an index still building or catching up on writes are not the catalog at this
+            // version, so they get no tag
+            if (!Boolean.TRUE.equals(response.get("complete"))) {
+                return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(response);
+            }
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", "Invalid search: " + e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TutorEntity> getTutorById(@PathVariable("id") Long tutorId) {
+    public ResponseEntity<TutorCardDTO> getTutorById(@PathVariable("id") Long tutorId,
+            HttpServletRequest request) {
+        String etag = tutorService.getCatalogETag();
+        if (notModified(request, etag)) {
+            return ResponseEntity.status(304).eTag(etag).build();
+        }
         try {
-            TutorEntity tutor = tutorService.findTutorById(tutorId);
-            return ResponseEntity.ok(tutor);
+            TutorCardDTO tutor = tutorService.getTutorCard(tutorId);
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(tutor);
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -55,14 +142,30 @@ public class TutorController {
         }
     }
 
-    @PatchMapping("/{id}/rating")
-    public ResponseEntity<TutorEntity> updateTutorRating(@PathVariable("id") Long tutorId,
-            @RequestBody Double rating) {
+    // Multipart upload ("file"); only the tutor themselves may change their picture
+    @PostMapping("/{id}/profile-picture")
+    public ResponseEntity<Map<String, Object>> uploadProfilePicture(@PathVariable("id") Long tutorId,
+            @RequestParam("file") MultipartFile file, @AuthenticationPrincipal AuthenticatedUser currentUser) {
+        Map<String, Object> response = new HashMap<>();
+        if (currentUser == null || !currentUser.isTutor() || !tutorId.equals(currentUser.getUserId())) {
+            response.put("success", false);
+            response.put("message", "Not allowed to change this profile picture");
+            return ResponseEntity.status(403).body(response);
+        }
         try {
-            TutorEntity tutor = tutorService.updateTutorRating(tutorId, rating);
-            return ResponseEntity.ok(tutor);
-        } catch (RuntimeException e) {
-            return ResponseEntity.notFound().build();
+            String hash = profilePictureService.updateTutorPicture(tutorId, file);
+            response.put("success", true);
+            response.put("profilePictureHash", hash);
+            response.put("profilePictureUrl", "/api/blobs/" + hash);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("message", "Could not store the picture");
+            return ResponseEntity.status(500).body(response);
         }
     }
 
@@ -77,20 +180,22 @@ public class TutorController {
     }
 
     @GetMapping("/stats")
-    public ResponseEntity<TutorStatsDTO> getTutorStats(HttpSession session) {
+    public ResponseEntity<TutorStatsDTO> getTutorStats(@AuthenticationPrincipal AuthenticatedUser currentUser) {
         try {
-            // Get tutor ID from session
-            Long tutorId = (Long) session.getAttribute("userId");
-            String role = (String) session.getAttribute("role");
-
-            if (tutorId == null || !"tutor".equals(role)) {
+            if (currentUser == null || !currentUser.isTutor()) {
                 return ResponseEntity.status(403).build();
             }
 
-            TutorStatsDTO stats = tutoringSessionService.getTutorStats(String.valueOf(tutorId));
+            TutorStatsDTO stats = tutoringSessionService.getTutorStats(String.valueOf(currentUser.getUserId()));
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             return ResponseEntity.status(500).build();
         }
     }
+
+    // Checked against the request alone: a WebRequest holding the response would also tag it on a
+    // miss, including responses that must go out untagged
+    private static boolean notModified(HttpServletRequest request, String etag) {
+        return new ServletWebRequest(request).checkNotModified(etag);
+    }
 }
@@ -0,0 +1,41 @@
+package com.appdev.vabara.valmerabanicoruperez.dto;
+
+// Identity of the caller, resolved once per request by JwtFilter. The name is the current display
+// name from the user directory, not the one in the token.
+public class AuthenticatedUser {
+    private final String email;
+    private final String role;
+    private final Long userId;
+    private final String name;
+
+    public AuthenticatedUser(String email, String role, Long userId, String name) {
+        this.email = email;
+        this.role = role;
+        this.userId = userId;
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isStudent() {
+        return "student".equals(role);
+    }
+
+    public boolean isTutor() {
+        return "tutor".equals(role);
+    }
+}
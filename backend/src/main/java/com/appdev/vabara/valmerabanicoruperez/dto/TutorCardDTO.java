@@ -0,0 +1,143 @@
+package com.appdev.vabara.valmerabanicoruperez.dto;
+
+// What the tutor catalog shows for one tutor; no password, and only the card-sized picture thumbnail
+public class TutorCardDTO {
+    private Long tutorId;
+    private String name;
+    private String email;
+    private String institution;
+    private Double rating;
+    private Integer reviews;
+    private Double hourlyRate;
+    private String expertiseSubjects;
+    private String location;
+    private String schedule;
+    private String availability;
+    private Integer experience;
+    private String profileThumbnailHash;
+
+    public TutorCardDTO() {
+    }
+
+    public TutorCardDTO(Long tutorId, String name, String email, String institution, Double rating, Integer reviews,
+            Double hourlyRate, String expertiseSubjects, String location, String schedule, String availability,
+            Integer experience, String profileThumbnailHash) {
+        this.tutorId = tutorId;
+        this.name = name;
+        this.email = email;
+        this.institution = institution;
+        this.rating = rating;
+        this.reviews = reviews;
+        this.hourlyRate = hourlyRate;
+        this.expertiseSubjects = expertiseSubjects;
+        this.location = location;
+        this.schedule = schedule;
+        this.availability = availability;
+        this.experience = experience;
+        this.profileThumbnailHash = profileThumbnailHash;
+    }
+
+    public Long getTutorId() {
+        return tutorId;
+    }
+
+    public void setTutorId(Long tutorId) {
+        this.tutorId = tutorId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getInstitution() {
+        return institution;
+    }
+
+    public void setInstitution(String institution) {
+        this.institution = institution;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    public Integer getReviews() {
+        return reviews;
+    }
+
+    public void setReviews(Integer reviews) {
+        this.reviews = reviews;
+    }
+
+    public Double getHourlyRate() {
+        return hourlyRate;
+    }
+
+    public void setHourlyRate(Double hourlyRate) {
+        this.hourlyRate = hourlyRate;
+    }
+
+    public String getExpertiseSubjects() {
+        return expertiseSubjects;
+    }
+
+    public void setExpertiseSubjects(String expertiseSubjects) {
+        this.expertiseSubjects = expertiseSubjects;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(String schedule) {
+        this.schedule = schedule;
+    }
+
+    public String getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(String availability) {
+        this.availability = availability;
+    }
+
+    public Integer getExperience() {
+        return experience;
+    }
+
+    public void setExperience(Integer experience) {
+        this.experience = experience;
+    }
+
+    public String getProfileThumbnailHash() {
+        return profileThumbnailHash;
+    }
+
+    public void setProfileThumbnailHash(String profileThumbnailHash) {
+        this.profileThumbnailHash = profileThumbnailHash;
+    }
+}
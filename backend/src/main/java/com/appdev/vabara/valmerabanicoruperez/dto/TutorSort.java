@@ -0,0 +1,66 @@
+package com.appdev.vabara.valmerabanicoruperez.dto;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+// Orderings offered by the tutor search; ties are broken by tutor id in the same direction
+public enum TutorSort {
+    RATING("rating", true),
+    PRICE("hourlyRate", false),
+    EXPERIENCE("experience", true);
+
+    private final String attribute;
+    private final boolean descending;
+
+    TutorSort(String attribute, boolean descending) {
+        this.attribute = attribute;
+        this.descending = descending;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    // Sort key of a card, as stored in a cursor
+    public Object keyOf(TutorCardDTO card) {
+        switch (this) {
+            case PRICE:
+                return card.getHourlyRate();
+            case EXPERIENCE:
+                return card.getExperience();
+            default:
+                return card.getRating();
+        }
+    }
+
+    // Same order as the SQL search: ascending puts null keys first, descending puts them last
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public Comparator<TutorCardDTO> comparator() {
+        Comparator<Comparable> keys = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparator<TutorCardDTO> byKey = (a, b) -> keys.compare((Comparable) keyOf(a), (Comparable) keyOf(b));
+        Comparator<TutorCardDTO> ascending = byKey.thenComparing(TutorCardDTO::getTutorId);
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    public Object parseKey(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        return this == EXPERIENCE ? (Object) Integer.valueOf(value) : (Object) Double.valueOf(value);
+    }
+
+    public static TutorSort from(String value) {
+        if (value == null) {
+            return RATING;
+        }
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown sort: " + value);
+        }
+    }
+}
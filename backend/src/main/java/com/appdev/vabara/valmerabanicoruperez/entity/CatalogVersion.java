@@ -0,0 +1,42 @@
+package com.appdev.vabara.valmerabanicoruperez.entity;
+
+import jakarta.persistence.*;
+
+// Single row counting writes to the tutor catalog. Every tutor write bumps it in its own transaction,
+// so all nodes derive the same catalog ETag from it.
+@Entity
+@Table(name = "catalog_version")
+public class CatalogVersion {
+
+    public static final Long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public CatalogVersion() {
+    }
+
+    public CatalogVersion(Long id, Long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
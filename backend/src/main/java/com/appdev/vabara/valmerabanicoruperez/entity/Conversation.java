@@ -32,6 +32,17 @@ public class Conversation {
     @Column(name = "last_message_text", columnDefinition = "TEXT")
     private String lastMessageText;
 
+    // Highest message id counted into the summary and unread counters below
+    @Column(name = "last_message_id")
+    private Long lastMessageId;
+
+    // Unread messages per participant, maintained on send and cleared on read
+    @Column(name = "student_unread", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer studentUnread = 0;
+
+    @Column(name = "tutor_unread", nullable = false, columnDefinition = "INT DEFAULT 0")
+    private Integer tutorUnread = 0;
+
     // Constructors
     public Conversation() {
         this.createdAt = LocalDateTime.now();
@@ -111,4 +122,33 @@ public class Conversation {
     public void setLastMessageText(String lastMessageText) {
         this.lastMessageText = lastMessageText;
     }
+
+    public Long getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(Long lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+
+    public Integer getStudentUnread() {
+        return studentUnread;
+    }
+
+    public void setStudentUnread(Integer studentUnread) {
+        this.studentUnread = studentUnread;
+    }
+
+    public Integer getTutorUnread() {
+        return tutorUnread;
+    }
+
+    public void setTutorUnread(Integer tutorUnread) {
+        this.tutorUnread = tutorUnread;
+    }
+
+    // Unread count as seen by the given participant type
+    public Integer getUnreadFor(String userType) {
+        return "student".equals(userType) ? studentUnread : tutorUnread;
+    }
 }
@@ -0,0 +1,58 @@
+package com.appdev.vabara.valmerabanicoruperez.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Shared event log read by every node when messaging.bus.type=jdbc. Rows are written and polled by
+// JdbcMessageBus; the entity exists so the table is managed with the rest of the schema.
+@Entity
+@Table(name = "conversation_events", indexes = {
+        @Index(name = "idx_conversation_events_created_at", columnList = "created_at")
+})
+public class ConversationEventLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "payload", columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(Long conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
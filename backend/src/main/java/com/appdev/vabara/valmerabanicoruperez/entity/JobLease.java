@@ -0,0 +1,54 @@
+package com.appdev.vabara.valmerabanicoruperez.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Named lease on a scheduled job, so that only one node runs it at a time. The holder renews it
+// while working; once expired any node may take it over.
+@Entity
+@Table(name = "job_lease")
+public class JobLease {
+
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "holder", length = 64)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public JobLease() {
+    }
+
+    public JobLease(String name, LocalDateTime expiresAt) {
+        this.name = name;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    public void setHolder(String holder) {
+        this.holder = holder;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -1,11 +1,11 @@
 package com.appdev.vabara.valmerabanicoruperez.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column;
-import jakarta.persistence.Lob;
 
 @Entity
 public class Student {
@@ -18,12 +18,23 @@ public class Student {
     @Column(unique = true)
     private String email;
 
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private int age;
 
-    @Lob
-    @Column(columnDefinition = "TEXT")
-    private String profilePicture;
+    // SHA-256 of the picture in the blob store, served from /api/blobs/{hash}; set only by upload
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profilePictureHash;
+
+    // Small variants of the picture (ThumbnailService sizes); null until they have been made
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profileThumbnailHash;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profileAvatarHash;
 
     public Long getId() {
         return id;
@@ -65,11 +76,27 @@ public class Student {
         this.age = age;
     }
 
-    public String getProfilePicture() {
-        return profilePicture;
+    public String getProfilePictureHash() {
+        return profilePictureHash;
+    }
+
+    public void setProfilePictureHash(String profilePictureHash) {
+        this.profilePictureHash = profilePictureHash;
+    }
+
+    public String getProfileThumbnailHash() {
+        return profileThumbnailHash;
+    }
+
+    public void setProfileThumbnailHash(String profileThumbnailHash) {
+        this.profileThumbnailHash = profileThumbnailHash;
+    }
+
+    public String getProfileAvatarHash() {
+        return profileAvatarHash;
     }
 
-    public void setProfilePicture(String profilePicture) {
-        this.profilePicture = profilePicture;
+    public void setProfileAvatarHash(String profileAvatarHash) {
+        this.profileAvatarHash = profileAvatarHash;
     }
 }
@@ -1,9 +1,21 @@
 package com.appdev.vabara.valmerabanicoruperez.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
 @Entity
-@Table(name = "tutors")
+@Table(name = "tutors", indexes = {
+        @Index(name = "idx_tutors_rating", columnList = "rating, tutor_id"),
+        @Index(name = "idx_tutors_hourly_rate", columnList = "hourly_rate, tutor_id"),
+        @Index(name = "idx_tutors_experience", columnList = "experience, tutor_id"),
+        @Index(name = "idx_tutors_availability", columnList = "availability"),
+        @Index(name = "idx_tutors_location", columnList = "location")
+})
 public class TutorEntity {
 
     @Id
@@ -15,20 +27,54 @@ public class TutorEntity {
     @Column(unique = true)
     private String email;
 
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private String expertiseSubjects;
     private Double hourlyRate;
     private String institution;
+
+    // Average and count of every rating received through /api/ratings and session feedback, with
+    // their running sum. Only TutorRepository.addRatings changes them, in one UPDATE, so saving the
+    // entity never writes them back and concurrent raters cannot overwrite each other.
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(updatable = false)
     private Double rating;
-    private Integer reviews;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(updatable = false)
+    private Integer reviews = 0;
+
+    // Null on rows from before the totals existed, until TutorService.backfillRatings fills them
+    @JsonIgnore
+    @Column(updatable = false)
+    private Long ratingSum = 0L;
+
     private String location;
     private String schedule;
     private String availability;
     private Integer experience;
 
-    @Lob
-    @Column(columnDefinition = "TEXT")
-    private String profilePicture;
+    // SHA-256 of the picture in the blob store, served from /api/blobs/{hash}; set only by upload
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profilePictureHash;
+
+    // Small variants of the picture (ThumbnailService sizes); null until they have been made
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profileThumbnailHash;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(length = 64)
+    private String profileAvatarHash;
+
+    // Normalised copy of expertiseSubjects, one row per subject, so subject filters can use an index
+    @JsonIgnore
+    @ElementCollection
+    @CollectionTable(name = "tutor_subjects", joinColumns = @JoinColumn(name = "tutor_id"),
+            indexes = @Index(name = "idx_tutor_subjects_subject", columnList = "subject, tutor_id"))
+    @Column(name = "subject", length = 100)
+    private Set<String> subjects = new HashSet<>();
 
     public Long getTutorId() {
         return tutorId;
@@ -68,6 +114,27 @@ public class TutorEntity {
 
     public void setExpertiseSubjects(String expertiseSubjects) {
         this.expertiseSubjects = expertiseSubjects;
+        // Update in place so Hibernate keeps tracking the same collection
+        subjects.clear();
+        subjects.addAll(parseSubjects(expertiseSubjects));
+    }
+
+    public Set<String> getSubjects() {
+        return subjects;
+    }
+
+    // Lower-cased, trimmed subjects from a comma-separated list
+    public static Set<String> parseSubjects(String expertiseSubjects) {
+        Set<String> parsed = new HashSet<>();
+        if (expertiseSubjects != null) {
+            for (String subject : expertiseSubjects.split(",")) {
+                String trimmed = subject.trim().toLowerCase(Locale.ROOT);
+                if (!trimmed.isEmpty()) {
+                    parsed.add(trimmed.length() > 100 ? trimmed.substring(0, 100) : trimmed);
+                }
+            }
+        }
+        return parsed;
     }
 
     public Double getHourlyRate() {
@@ -103,6 +170,14 @@ public class TutorEntity {
         this.reviews = reviews;
     }
 
+    public Long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
     public String getLocation() {
         return location;
     }
@@ -135,11 +210,27 @@ public class TutorEntity {
         this.experience = experience;
     }
 
-    public String getProfilePicture() {
-        return profilePicture;
+    public String getProfilePictureHash() {
+        return profilePictureHash;
+    }
+
+    public void setProfilePictureHash(String profilePictureHash) {
+        this.profilePictureHash = profilePictureHash;
+    }
+
+    public String getProfileThumbnailHash() {
+        return profileThumbnailHash;
+    }
+
+    public void setProfileThumbnailHash(String profileThumbnailHash) {
+        this.profileThumbnailHash = profileThumbnailHash;
+    }
+
+    public String getProfileAvatarHash() {
+        return profileAvatarHash;
     }
 
-    public void setProfilePicture(String profilePicture) {
-        this.profilePicture = profilePicture;
+    public void setProfileAvatarHash(String profileAvatarHash) {
+        this.profileAvatarHash = profileAvatarHash;
     }
 }
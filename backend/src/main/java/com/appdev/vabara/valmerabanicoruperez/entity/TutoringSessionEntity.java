@@ -3,11 +3,15 @@ package com.appdev.vabara.valmerabanicoruperez.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tutoring_session")
+@Table(name = "tutoring_session", indexes = {
+        @Index(name = "idx_tutoring_session_student", columnList = "student_id, date_time"),
+        @Index(name = "idx_tutoring_session_tutor", columnList = "tutor_id, date_time")
+})
 public class TutoringSessionEntity {
 
     @Id
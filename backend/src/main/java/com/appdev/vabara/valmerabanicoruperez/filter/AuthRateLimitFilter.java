@@ -0,0 +1,45 @@
+package com.appdev.vabara.valmerabanicoruperez.filter;
+
+import com.appdev.vabara.valmerabanicoruperez.service.AuthRateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// Rejects login and registration attempts over the per-client limit before they reach a controller
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !"POST".equals(request.getMethod())
+                || !(path.equals("/api/auth/login") || path.startsWith("/api/auth/register/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        // With server.forward-headers-strategy=native the remote address is the client resolved from
+        // X-Forwarded-For by trusted proxies, not the proxy in front of us
+        if (!authRateLimiter.tryAcquireClient(request.getRemoteAddr())) {
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(authRateLimiter.clientRetryAfterSeconds()));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"success\":false,\"message\":\"Too many attempts, please try again later\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,6 +1,10 @@
 package com.appdev.vabara.valmerabanicoruperez.filter;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.service.TokenRevocationService;
+import com.appdev.vabara.valmerabanicoruperez.service.UserDirectoryService;
 import com.appdev.vabara.valmerabanicoruperez.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -16,32 +20,34 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Optional;
 
+// Resolves the caller once per request; controllers receive it with @AuthenticationPrincipal
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private UserDirectoryService userDirectoryService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
         String token = extractTokenFromCookies(request.getCookies());
-        String username = null;
 
-        if (token != null) {
-            try {
-                username = jwtUtil.getUsernameFromToken(token);
-            } catch (Exception e) {
-                // Token invalid or expired, ignore
-            }
-        }
-
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            if (jwtUtil.validateToken(token)) {
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null
+                && !tokenRevocationService.isRevoked(token)) {
+            Claims claims = jwtUtil.getVerifiedClaims(token);
+            AuthenticatedUser user = claims != null ? toPrincipal(claims) : null;
+            if (user != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        username, null, Collections.emptyList());
+                        user, null, Collections.emptyList());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
@@ -50,6 +56,24 @@ public class JwtFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Identity comes from the token; the display name comes from the user directory, which is
+    // updated on every profile save, so a rename shows up without logging in again
+    private AuthenticatedUser toPrincipal(Claims claims) {
+        String email = claims.getSubject();
+        String userType = claims.get("userType", String.class);
+        Long userId = claims.get("userId", Long.class);
+        Optional<AuthenticatedUser> current = userDirectoryService.lookup(email)
+                .filter(user -> user.getRole().equals(userType));
+
+        if (userId == null) {
+            // Tokens issued before ids were embedded; these expire within a day
+            return current.orElse(null);
+        }
+        return current
+                .filter(user -> userId.equals(user.getUserId()))
+                .orElseGet(() -> new AuthenticatedUser(email, userType, userId, claims.get("name", String.class)));
+    }
+
     private String extractTokenFromCookies(Cookie[] cookies) {
         if (cookies != null) {
             return Arrays.stream(cookies)
@@ -60,4 +84,4 @@ public class JwtFilter extends OncePerRequestFilter {
         }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package com.appdev.vabara.valmerabanicoruperez.repository;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.CatalogVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Long> {
+
+    // Joins the caller's transaction, so the bump commits or rolls back with the tutor write. The row
+    // lock it takes also orders concurrent writers, giving each one its own version.
+    @Modifying
+    @Transactional
+    @Query("UPDATE CatalogVersion c SET c.version = c.version + 1 WHERE c.id = 1")
+    int bump();
+
+    @Query("SELECT c.version FROM CatalogVersion c WHERE c.id = 1")
+    Optional<Long> findCurrent();
+}
@@ -2,8 +2,12 @@ package com.appdev.vabara.valmerabanicoruperez.repository;
 
 import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +18,28 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
     List<Conversation> findByTutorIdOrderByLastMessageAtDesc(Long tutorId);
 
     Optional<Conversation> findByStudentEmailAndTutorId(String studentEmail, Long tutorId);
+
+    // Update the conversation summary and bump the recipient's unread counter in one statement.
+    // lastMessageId only moves up, so a message committing after a newer one cannot lower it.
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageText = :text, c.lastMessageAt = :at, "
+            + "c.tutorUnread = c.tutorUnread + :count, c.lastMessageId = CASE WHEN c.lastMessageId IS NULL "
+            + "OR c.lastMessageId < :messageId THEN :messageId ELSE c.lastMessageId END WHERE c.id = :id")
+    int recordStudentMessages(@Param("id") Long id, @Param("text") String text,
+            @Param("at") LocalDateTime at, @Param("count") int count, @Param("messageId") Long messageId);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.lastMessageText = :text, c.lastMessageAt = :at, "
+            + "c.studentUnread = c.studentUnread + :count, c.lastMessageId = CASE WHEN c.lastMessageId IS NULL "
+            + "OR c.lastMessageId < :messageId THEN :messageId ELSE c.lastMessageId END WHERE c.id = :id")
+    int recordTutorMessages(@Param("id") Long id, @Param("text") String text,
+            @Param("at") LocalDateTime at, @Param("count") int count, @Param("messageId") Long messageId);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.studentUnread = 0 WHERE c.id = :id")
+    int clearStudentUnread(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Conversation c SET c.tutorUnread = 0 WHERE c.id = :id")
+    int clearTutorUnread(@Param("id") Long id);
 }
@@ -0,0 +1,27 @@
+package com.appdev.vabara.valmerabanicoruperez.repository;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // Takes the lease when it has expired, or extends it when the caller already holds it.
+    // Returns 1 when the caller holds the lease until the given time, 0 when another node does.
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.holder = :holder, l.expiresAt = :until "
+            + "WHERE l.name = :name AND (l.holder = :holder OR l.expiresAt < :now)")
+    int acquire(@Param("name") String name, @Param("holder") String holder,
+                @Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.holder = NULL, l.expiresAt = :now WHERE l.name = :name AND l.holder = :holder")
+    int release(@Param("name") String name, @Param("holder") String holder, @Param("now") LocalDateTime now);
+}
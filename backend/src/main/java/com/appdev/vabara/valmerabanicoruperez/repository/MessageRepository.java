@@ -1,14 +1,45 @@
 package com.appdev.vabara.valmerabanicoruperez.repository;
 
 import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
 
     List<Message> findByConversationIdAndIsReadFalse(Long conversationId);
+
+    // Keyset pagination over the (conversation_id, id) index, newest first
+    List<Message> findByConversationIdOrderByIdDesc(Long conversationId, Pageable pageable);
+
+    List<Message> findByConversationIdAndIdLessThanOrderByIdDesc(Long conversationId, Long id, Pageable pageable);
+
+    List<Message> findByConversationIdOrderByIdAsc(Long conversationId, Pageable pageable);
+
+    // Messages newer than a cursor, for delta sync
+    List<Message> findByConversationIdAndIdGreaterThanOrderByIdAsc(Long conversationId, Long id, Pageable pageable);
+
+    // Conversations holding messages old enough to move to the archive
+    @Query("SELECT DISTINCT m.conversationId FROM Message m WHERE m.createdAt < :cutoff")
+    List<Long> findConversationIdsWithMessagesBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // Id-range scans used to rebuild in-memory indexes
+    Optional<Message> findTopByOrderByIdDesc();
+
+    List<Message> findByIdBetween(Long startId, Long endId);
+
+    // Flip every message the reader has received in a conversation to read
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true WHERE m.conversationId = :conversationId "
+            + "AND m.isRead = false AND m.senderType <> :readerType")
+    int markReadForRecipient(@Param("conversationId") Long conversationId, @Param("readerType") String readerType);
 }
@@ -1,7 +1,18 @@
 package com.appdev.vabara.valmerabanicoruperez.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.appdev.vabara.valmerabanicoruperez.entity.RatingEntity;
 
+import java.util.Optional;
+
 public interface RatingRepository extends JpaRepository<RatingEntity, Long> {
+
+    // Holds the row until commit, so two changes to one rating cannot both subtract its old value
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM RatingEntity r WHERE r.id = :id")
+    Optional<RatingEntity> findByIdForUpdate(@Param("id") Long id);
 }
@@ -1,12 +1,39 @@
 package com.appdev.vabara.valmerabanicoruperez.repository;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
 import com.appdev.vabara.valmerabanicoruperez.entity.Student;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Optional<Student> findByEmail(String email);
+
+    // Identity columns only, for the user directory
+    @Query("SELECT new com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser(s.email, 'student', s.id, s.name) "
+            + "FROM Student s WHERE s.email IS NOT NULL")
+    List<AuthenticatedUser> findAllIdentities();
+
+    @Query("SELECT s.password FROM Student s WHERE s.id = :id")
+    String findPasswordById(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Student s SET s.password = :password WHERE s.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    // Only applies while the picture they were made from is still the current one
+    @Modifying
+    @Transactional
+    @Query("UPDATE Student s SET s.profileThumbnailHash = :thumbnail, s.profileAvatarHash = :avatar "
+            + "WHERE s.id = :id AND s.profilePictureHash = :source")
+    int updateThumbnails(@Param("id") Long id, @Param("source") String source,
+            @Param("thumbnail") String thumbnail, @Param("avatar") String avatar);
 }
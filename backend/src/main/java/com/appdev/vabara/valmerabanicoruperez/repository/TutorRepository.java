@@ -1,10 +1,97 @@
 package com.appdev.vabara.valmerabanicoruperez.repository;
 
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
 import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface TutorRepository extends JpaRepository<TutorEntity, Long> {
+public interface TutorRepository extends JpaRepository<TutorEntity, Long>, TutorSearchRepository {
     Optional<TutorEntity> findByEmail(String email);
+
+    // Identity columns only, for the user directory
+    @Query("SELECT new com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser(t.email, 'tutor', t.tutorId, t.name) "
+            + "FROM TutorEntity t WHERE t.email IS NOT NULL")
+    List<AuthenticatedUser> findAllIdentities();
+
+    @Query("SELECT t.password FROM TutorEntity t WHERE t.tutorId = :id")
+    String findPasswordById(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE TutorEntity t SET t.password = :password WHERE t.tutorId = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
+    // Only applies while the picture they were made from is still the current one
+    @Modifying
+    @Transactional
+    @Query("UPDATE TutorEntity t SET t.profileThumbnailHash = :thumbnail, t.profileAvatarHash = :avatar "
+            + "WHERE t.tutorId = :id AND t.profilePictureHash = :source")
+    int updateThumbnails(@Param("id") Long id, @Param("source") String source,
+            @Param("thumbnail") String thumbnail, @Param("avatar") String avatar);
+
+    // Adds ratings to the running totals in a single statement. rating is assigned first because MySQL
+    // evaluates SET left to right, so later assignments would see the new sum and count. Rows not
+    // yet backfilled are left alone; the backfill counts the new rating from the history instead.
+    @Modifying
+    @Transactional
+    @Query("UPDATE TutorEntity t SET "
+            + "t.rating = CASE WHEN t.reviews + :count > 0 "
+            + "THEN CAST(t.ratingSum + :sum AS Double) / (t.reviews + :count) ELSE NULL END, "
+            + "t.ratingSum = t.ratingSum + :sum, t.reviews = t.reviews + :count "
+            + "WHERE t.tutorId = :id AND t.ratingSum IS NOT NULL")
+    int addRatings(@Param("id") Long id, @Param("sum") long sum, @Param("count") int count);
+
+    // Totals of tutors stored before they existed, from ratings and rated sessions
+    @Modifying
+    @Transactional
+    @Query("UPDATE TutorEntity t SET "
+            + "t.ratingSum = COALESCE((SELECT SUM(r.rating) FROM RatingEntity r "
+            + "WHERE r.tutorId = t.tutorId AND r.rating > 0), 0) "
+            + "+ COALESCE((SELECT SUM(s.rating) FROM TutoringSessionEntity s "
+            + "WHERE s.tutorId = CAST(t.tutorId AS String) AND s.rating > 0), 0), "
+            + "t.reviews = CAST((SELECT COUNT(r) FROM RatingEntity r WHERE r.tutorId = t.tutorId AND r.rating > 0) "
+            + "+ (SELECT COUNT(s) FROM TutoringSessionEntity s "
+            + "WHERE s.tutorId = CAST(t.tutorId AS String) AND s.rating > 0) AS Integer) "
+            + "WHERE t.ratingSum IS NULL")
+    int backfillRatingTotals();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE TutorEntity t SET t.rating = CASE WHEN t.reviews > 0 "
+            + "THEN CAST(t.ratingSum AS Double) / t.reviews ELSE NULL END WHERE t.ratingSum IS NOT NULL")
+    int recomputeAverageRatings();
+
+    @Query("SELECT t.tutorId, t.profileAvatarHash FROM TutorEntity t "
+            + "WHERE t.tutorId IN :ids AND t.profileAvatarHash IS NOT NULL")
+    List<Object[]> findAvatarHashes(@Param("ids") Collection<Long> ids);
+
+    // Card columns only: no password and no full-size picture
+    String CARD_SELECT = "SELECT new com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO(t.tutorId, t.name, "
+            + "t.email, t.institution, t.rating, t.reviews, t.hourlyRate, t.expertiseSubjects, t.location, "
+            + "t.schedule, t.availability, t.experience, t.profileThumbnailHash) FROM TutorEntity t";
+
+    @Query(CARD_SELECT + " ORDER BY t.tutorId")
+    List<TutorCardDTO> findAllCards();
+
+    @Query(CARD_SELECT + " WHERE t.tutorId = :id")
+    Optional<TutorCardDTO> findCardById(@Param("id") Long id);
+
+    // For rebuilding the tutor search index
+    @Query(CARD_SELECT + " WHERE t.tutorId BETWEEN :start AND :end")
+    List<TutorCardDTO> findCardsByIdBetween(@Param("start") Long start, @Param("end") Long end);
+
+    @Query("SELECT MAX(t.tutorId) FROM TutorEntity t")
+    Long findMaxTutorId();
+
+    // Tutors saved before subjects were normalised into tutor_subjects
+    @Query("SELECT t FROM TutorEntity t WHERE t.subjects IS EMPTY AND t.expertiseSubjects IS NOT NULL")
+    List<TutorEntity> findWithoutSubjectRows();
 }
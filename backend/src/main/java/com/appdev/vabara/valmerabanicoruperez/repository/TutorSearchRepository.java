@@ -0,0 +1,15 @@
+package com.appdev.vabara.valmerabanicoruperez.repository;
+
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSort;
+
+import java.util.List;
+
+// Filtered, keyset-paged tutor catalog queries; implemented with the Criteria API
+public interface TutorSearchRepository {
+
+    // Cards after the (afterKey, afterId) position in the given order. afterId null means the first page.
+    List<TutorCardDTO> searchCards(TutorSearchCriteria criteria, TutorSort sort, Object afterKey, Long afterId,
+            int maxResults);
+}
@@ -0,0 +1,109 @@
+package com.appdev.vabara.valmerabanicoruperez.repository;
+
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSort;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+public class TutorSearchRepositoryImpl implements TutorSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public List<TutorCardDTO> searchCards(TutorSearchCriteria criteria, TutorSort sort, Object afterKey, Long afterId,
+            int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TutorCardDTO> query = cb.createQuery(TutorCardDTO.class);
+        Root<TutorEntity> tutor = query.from(TutorEntity.class);
+
+        // Only the card columns are selected, never the password or the full-size picture
+        query.select(cb.construct(TutorCardDTO.class,
+                tutor.get("tutorId"), tutor.get("name"), tutor.get("email"), tutor.get("institution"),
+                tutor.get("rating"), tutor.get("reviews"), tutor.get("hourlyRate"), tutor.get("expertiseSubjects"),
+                tutor.get("location"), tutor.get("schedule"), tutor.get("availability"), tutor.get("experience"),
+                tutor.get("profileThumbnailHash")));
+
+        List<Predicate> where = new ArrayList<>();
+        if (hasText(criteria.getSubject())) {
+            // Answered from tutor_subjects (subject, tutor_id)
+            where.add(cb.isMember(criteria.getSubject().trim().toLowerCase(Locale.ROOT),
+                    tutor.<Set<String>>get("subjects")));
+        }
+        if (criteria.getMinRate() != null) {
+            where.add(cb.greaterThanOrEqualTo(tutor.get("hourlyRate"), criteria.getMinRate()));
+        }
+        if (criteria.getMaxRate() != null) {
+            where.add(cb.lessThanOrEqualTo(tutor.get("hourlyRate"), criteria.getMaxRate()));
+        }
+        if (criteria.getMinRating() != null) {
+            where.add(cb.greaterThanOrEqualTo(tutor.get("rating"), criteria.getMinRating()));
+        }
+        if (criteria.getMinExperience() != null) {
+            where.add(cb.greaterThanOrEqualTo(tutor.get("experience"), criteria.getMinExperience()));
+        }
+        if (hasText(criteria.getLocation())) {
+            // Prefix match keeps the location index usable
+            where.add(cb.like(tutor.get("location"), escapeLike(criteria.getLocation().trim()) + "%", '\\'));
+        }
+        if (hasText(criteria.getAvailability())) {
+            where.add(cb.equal(tutor.get("availability"), criteria.getAvailability().trim()));
+        }
+
+        Path key = tutor.get(sort.getAttribute());
+        Path<Long> id = tutor.get("tutorId");
+        if (afterId != null) {
+            where.add(after(cb, key, id, (Comparable) afterKey, afterId, sort.isDescending()));
+        }
+        query.where(where.toArray(new Predicate[0]));
+
+        // MySQL puts NULL keys last in descending and first in ascending order; the keyset predicate follows that
+        if (sort.isDescending()) {
+            query.orderBy(cb.desc(key), cb.desc(id));
+        } else {
+            query.orderBy(cb.asc(key), cb.asc(id));
+        }
+
+        return entityManager.createQuery(query).setMaxResults(maxResults).getResultList();
+    }
+
+    // Rows strictly after (afterKey, afterId) in the query's order
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Predicate after(CriteriaBuilder cb, Path key, Path<Long> id, Comparable afterKey, Long afterId,
+            boolean descending) {
+        if (descending) {
+            if (afterKey == null) {
+                return cb.and(cb.isNull(key), cb.lessThan(id, afterId));
+            }
+            return cb.or(cb.lessThan(key, afterKey),
+                    cb.and(cb.equal(key, afterKey), cb.lessThan(id, afterId)),
+                    cb.isNull(key));
+        }
+        if (afterKey == null) {
+            return cb.or(cb.and(cb.isNull(key), cb.greaterThan(id, afterId)), cb.isNotNull(key));
+        }
+        return cb.or(cb.greaterThan(key, afterKey),
+                cb.and(cb.equal(key, afterKey), cb.greaterThan(id, afterId)));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,7 +1,30 @@
 package com.appdev.vabara.valmerabanicoruperez.repository;
 
 import com.appdev.vabara.valmerabanicoruperez.entity.TutoringSessionEntity;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface TutoringSessionRepository extends JpaRepository<TutoringSessionEntity, String> {
+
+    long countByStudentId(String studentId);
+
+    long countByTutorId(String tutorId);
+
+    long countByStudentIdAndDateTimeAfter(String studentId, LocalDateTime after);
+
+    long countByTutorIdAndDateTimeAfter(String tutorId, LocalDateTime after);
+
+    List<TutoringSessionEntity> findByTutorId(String tutorId);
+
+    // Holds the row until commit, so two updates of one session cannot both move its old rating
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TutoringSessionEntity s WHERE s.sessionId = :id")
+    Optional<TutoringSessionEntity> findByIdForUpdate(@Param("id") String id);
 }
@@ -0,0 +1,58 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.util.TokenBucketLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Throttles login and registration attempts per client address and per email, so one client
+// cannot keep the database and the password hashing pool busy
+@Service
+public class AuthRateLimiter {
+
+    private final TokenBucketLimiter byClient;
+    private final TokenBucketLimiter byEmail;
+
+    public AuthRateLimiter(
+            @Value("${security.rate-limit.client.capacity:20}") int clientCapacity,
+            @Value("${security.rate-limit.client.refill-per-minute:20}") int clientRefillPerMinute,
+            @Value("${security.rate-limit.email.capacity:5}") int emailCapacity,
+            @Value("${security.rate-limit.email.refill-per-minute:5}") int emailRefillPerMinute,
+            @Value("${security.rate-limit.max-keys:100000}") int maxKeys) {
+        this.byClient = new TokenBucketLimiter(clientCapacity, clientRefillPerMinute, maxKeys);
+        this.byEmail = new TokenBucketLimiter(emailCapacity, emailRefillPerMinute, maxKeys);
+    }
+
+    public boolean tryAcquireClient(String clientAddress) {
+        return byClient.tryAcquire(clientAddress);
+    }
+
+    public boolean tryAcquireEmail(String email) {
+        return email == null || byEmail.tryAcquire(email.toLowerCase(Locale.ROOT));
+    }
+
+    public long clientRetryAfterSeconds() {
+        return byClient.retryAfterSeconds();
+    }
+
+    public long emailRetryAfterSeconds() {
+        return byEmail.retryAfterSeconds();
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.evict-interval-ms:10000}")
+    public void evictIdle() {
+        byClient.evictIdle();
+        byEmail.evictIdle();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("client", byClient.getStats());
+        stats.put("email", byEmail.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,301 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Per-user conversation list cache. Entries are bounded by count (least recently used goes first) and
+// by age. Writes update cached lists in place instead of evicting them, so an active inbox stays warm.
+// Cached Conversation objects are never mutated; updates swap in a modified copy.
+//
+// A message event only counts once: rows read from the database carry the id of the last message
+// already in their counters, and events at or below it are ignored. That covers a load that reads
+// after a send commits but before the bus delivers its event.
+//
+// A miss is filled through startLoad/finishLoad. Updates to an inbox that is not cached are not kept
+// anywhere, so a load that overlaps one cannot tell whether its rows already include it; such a load
+// is dropped instead of cached, and the next request reads the database again.
+@Component
+public class InboxCache implements ConversationEventListener {
+
+    @Value("${messaging.inbox-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${messaging.inbox-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Which cached inboxes contain a conversation, so writes can find them without scanning
+    private final Map<Long, Set<String>> keysByConversation = new HashMap<>();
+    // Loads between a miss and their finishLoad; every update is recorded on each of them
+    private final Set<Load> pendingLoads = new HashSet<>();
+
+    // Guarded by this, like the entries
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long droppedLoads;
+
+    public static String studentKey(String email) {
+        return "student:" + email;
+    }
+
+    public static String tutorKey(Long tutorId) {
+        return "tutor:" + tutorId;
+    }
+
+    // Returns the cached inbox (most recent first), or null on a miss
+    public synchronized List<Conversation> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isExpired(ttlSeconds)) {
+            removeEntry(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.conversations);
+    }
+
+    // Call after a miss, before reading the database
+    public synchronized Load startLoad(String key) {
+        Load load = new Load(key);
+        pendingLoads.add(load);
+        return load;
+    }
+
+    // Caches what the load read, unless the inbox was written to since startLoad. Pass null when the
+    // read failed.
+    public synchronized void finishLoad(Load load, List<Conversation> conversations) {
+        if (!pendingLoads.remove(load) || conversations == null) {
+            return;
+        }
+        boolean overlapped = load.invalidated || load.createdConversation
+                || conversations.stream().anyMatch(conv -> load.touched.contains(conv.getId()));
+        if (overlapped) {
+            droppedLoads++;
+            return;
+        }
+        removeEntry(load.key);
+        Entry entry = new Entry(new ArrayList<>(conversations));
+        entries.put(load.key, entry);
+        for (Conversation conv : entry.conversations) {
+            index(conv.getId(), load.key);
+        }
+        evictOverflow();
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            switch (event.getType()) {
+                case ConversationEvent.MESSAGE_SENT -> recordMessage(event.getConversationId(), event.getMessageId(),
+                        event.getSenderType(), MessageService.preview(event.getMessageText()), event.getCreatedAt());
+                case ConversationEvent.CONVERSATION_CREATED -> addConversation(event.toConversation());
+                case ConversationEvent.CONVERSATION_READ -> markRead(event.getConversationId(), event.getReaderType());
+                case ConversationEvent.EVENTS_LOST -> invalidateAll();
+                default -> {
+                }
+            }
+        }
+    }
+
+    // A new conversation goes to the top of both participants' cached inboxes
+    public synchronized void addConversation(Conversation conv) {
+        for (String key : List.of(studentKey(conv.getStudentEmail()), tutorKey(conv.getTutorId()))) {
+            for (Load load : pendingLoads) {
+                if (load.key.equals(key)) {
+                    load.createdConversation = true;
+                }
+            }
+            Entry entry = entries.get(key);
+            if (entry == null || entry.indexOf(conv.getId()) >= 0) {
+                continue;
+            }
+            entry.conversations.add(0, copy(conv));
+            index(conv.getId(), key);
+        }
+    }
+
+    // Reflect a sent message: new preview and time, recipient's unread count bumped, moved to the top
+    public synchronized void recordMessage(Long conversationId, Long messageId, String senderType, String preview,
+            LocalDateTime sentAt) {
+        updateEverywhere(conversationId, conv -> {
+            // Already counted in the row this entry was loaded from. Events after that one are each
+            // applied once, in whatever order the bus delivers them.
+            if (conv.getLastMessageId() != null && messageId != null && messageId <= conv.getLastMessageId()) {
+                return false;
+            }
+            // The bus can deliver a late-committed message after a newer one
+            if (conv.getLastMessageAt() == null || !sentAt.isBefore(conv.getLastMessageAt())) {
+                conv.setLastMessageText(preview);
+                conv.setLastMessageAt(sentAt);
+            }
+            if ("student".equals(senderType)) {
+                conv.setTutorUnread(conv.getTutorUnread() + 1);
+            } else {
+                conv.setStudentUnread(conv.getStudentUnread() + 1);
+            }
+            return true;
+        }, true);
+    }
+
+    public synchronized void markRead(Long conversationId, String readerType) {
+        updateEverywhere(conversationId, conv -> {
+            if ("student".equals(readerType)) {
+                conv.setStudentUnread(0);
+            } else {
+                conv.setTutorUnread(0);
+            }
+            return true;
+        }, false);
+    }
+
+    // Drop everything, including what loads in progress will read; the bus lost updates
+    public synchronized void invalidateAll() {
+        evictions += entries.size();
+        entries.clear();
+        keysByConversation.clear();
+        for (Load load : pendingLoads) {
+            load.invalidated = true;
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        stats.put("droppedLoads", droppedLoads);
+        stats.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("size", entries.size());
+        return stats;
+    }
+
+    // The update returns false when it left the conversation unchanged
+    private void updateEverywhere(Long conversationId, Predicate<Conversation> update,
+            boolean moveToTop) {
+        for (Load load : pendingLoads) {
+            load.touched.add(conversationId);
+        }
+        Set<String> keys = keysByConversation.get(conversationId);
+        if (keys == null) {
+            return;
+        }
+        // An inbox that is being written to counts as recently used
+        for (String key : new ArrayList<>(keys)) {
+            Entry entry = entries.get(key);
+            int index = entry == null ? -1 : entry.indexOf(conversationId);
+            if (index < 0) {
+                continue;
+            }
+            Conversation updated = copy(entry.conversations.get(index));
+            if (!update.test(updated)) {
+                continue;
+            }
+            if (moveToTop) {
+                entry.conversations.remove(index);
+                entry.conversations.add(0, updated);
+            } else {
+                entry.conversations.set(index, updated);
+            }
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            it.remove();
+            unindex(eldest.getKey(), eldest.getValue());
+            evictions++;
+        }
+    }
+
+    private void removeEntry(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            unindex(key, removed);
+        }
+    }
+
+    private void index(Long conversationId, String key) {
+        keysByConversation.computeIfAbsent(conversationId, id -> new HashSet<>()).add(key);
+    }
+
+    private void unindex(String key, Entry entry) {
+        for (Conversation conv : entry.conversations) {
+            Set<String> keys = keysByConversation.get(conv.getId());
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByConversation.remove(conv.getId());
+                }
+            }
+        }
+    }
+
+    private static Conversation copy(Conversation source) {
+        Conversation conv = new Conversation(source.getStudentEmail(), source.getTutorId(),
+                source.getTutorName(), source.getTutorSubject());
+        conv.setId(source.getId());
+        conv.setCreatedAt(source.getCreatedAt());
+        conv.setLastMessageAt(source.getLastMessageAt());
+        conv.setLastMessageText(source.getLastMessageText());
+        conv.setLastMessageId(source.getLastMessageId());
+        conv.setStudentUnread(source.getStudentUnread());
+        conv.setTutorUnread(source.getTutorUnread());
+        return conv;
+    }
+
+    // One read-through in progress
+    public static final class Load {
+        private final String key;
+        // Conversations updated while the load ran, whether one was created for this inbox, and
+        // whether the cache was invalidated meanwhile
+        private final Set<Long> touched = new HashSet<>();
+        private boolean createdConversation;
+        private boolean invalidated;
+
+        private Load(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Conversation> conversations;
+        private final long loadedAt = System.currentTimeMillis();
+
+        private Entry(List<Conversation> conversations) {
+            this.conversations = conversations;
+        }
+
+        private boolean isExpired(long ttlSeconds) {
+            return System.currentTimeMillis() - loadedAt > ttlSeconds * 1000;
+        }
+
+        private int indexOf(Long conversationId) {
+            for (int i = 0; i < conversations.size(); i++) {
+                if (conversations.get(i).getId().equals(conversationId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.JobLease;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.JobLeaseRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+// Cold tier for old messages. Messages older than messaging.archive.max-age-days are moved out of the
+// messages table into two append-only files per conversation:
+//   conv-<id>.seg  deflate-compressed blocks of messages, oldest first
+//   conv-<id>.idx  one fixed-size entry per block: first id, last id, offset, length, message count
+// Both files are read through memory-mapped I/O. Archiving always takes the oldest messages of a
+// conversation, so every archived id is lower than every id still in the table.
+// With several nodes the directory must be shared storage, since any node may read the archive, and
+// the scheduled run holds the "message-archive" job lease so that only one node writes to it at a time.
+@Service
+public class MessageArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    private static final int INDEX_ENTRY_BYTES = 32;
+    static final String LEASE = "message-archive";
+
+    private final MessageRepository messageRepository;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<Long, Object> conversationLocks = new ConcurrentHashMap<>();
+
+    @Value("${messaging.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${messaging.archive.directory:data/message-archive}")
+    private String directory;
+
+    @Value("${messaging.archive.max-age-days:180}")
+    private long maxAgeDays;
+
+    @Value("${messaging.archive.block-size:500}")
+    private int blockSize;
+
+    @Value("${messaging.archive.lease-ms:600000}")
+    private long leaseMs;
+
+    public MessageArchiveService(MessageRepository messageRepository, JobLeaseRepository jobLeaseRepository) {
+        this.messageRepository = messageRepository;
+        this.jobLeaseRepository = jobLeaseRepository;
+    }
+
+    @PostConstruct
+    public void createLease() {
+        if (enabled && !jobLeaseRepository.existsById(LEASE)) {
+            try {
+                jobLeaseRepository.save(new JobLease(LEASE, LocalDateTime.now()));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${messaging.archive.interval-ms:3600000}",
+            fixedDelayString = "${messaging.archive.interval-ms:3600000}")
+    public void archiveOldMessages() {
+        if (!enabled || !holdLease()) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+            int archived = 0;
+            for (Long conversationId : messageRepository.findConversationIdsWithMessagesBefore(cutoff)) {
+                // Stop if the lease ran out and another node may have taken over
+                if (!holdLease()) {
+                    log.warn("Lost the archive lease; stopping this run");
+                    break;
+                }
+                try {
+                    archived += archiveConversation(conversationId, cutoff);
+                } catch (IOException | UncheckedIOException e) {
+                    log.warn("Archiving conversation {} failed: {}", conversationId, e.getMessage());
+                }
+            }
+            if (archived > 0) {
+                log.info("Archived {} messages older than {}", archived, cutoff);
+            }
+        } finally {
+            jobLeaseRepository.release(LEASE, nodeId, LocalDateTime.now());
+        }
+    }
+
+    // Take or extend the archive lease for another lease-ms
+    private boolean holdLease() {
+        LocalDateTime now = LocalDateTime.now();
+        return jobLeaseRepository.acquire(LEASE, nodeId, now, now.plusNanos(leaseMs * 1_000_000)) == 1;
+    }
+
+    // Move the conversation's messages created before the cutoff to its segment file, block by block
+    public int archiveConversation(Long conversationId, LocalDateTime cutoff) throws IOException {
+        int archived = 0;
+        while (true) {
+            List<Message> oldest = messageRepository.findByConversationIdOrderByIdAsc(conversationId,
+                    PageRequest.of(0, blockSize));
+            List<Message> block = new ArrayList<>();
+            for (Message message : oldest) {
+                if (!message.getCreatedAt().isBefore(cutoff)) {
+                    break;
+                }
+                block.add(message);
+            }
+            if (block.isEmpty()) {
+                return archived;
+            }
+
+            // Rows left behind by an interrupted run are already in the file; only delete them
+            long lastArchivedId = lastArchivedId(conversationId);
+            List<Message> toWrite = block.stream().filter(m -> m.getId() > lastArchivedId).toList();
+            if (!toWrite.isEmpty()) {
+                appendBlock(conversationId, toWrite);
+            }
+            messageRepository.deleteAllByIdInBatch(block.stream().map(Message::getId).toList());
+            archived += block.size();
+
+            if (block.size() < blockSize) {
+                return archived;
+            }
+        }
+    }
+
+    // Conversations that have a segment file, found by listing the archive directory
+    public List<Long> archivedConversationIds() {
+        List<Long> ids = new ArrayList<>();
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            return ids;
+        }
+        try (DirectoryStream<Path> indexes = Files.newDirectoryStream(root, "conv-*.idx")) {
+            for (Path index : indexes) {
+                String name = index.getFileName().toString();
+                try {
+                    ids.add(Long.parseLong(name.substring("conv-".length(), name.length() - ".idx".length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected archive file {}", name);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ids;
+    }
+
+    public boolean hasArchive(Long conversationId) {
+        return Files.exists(indexPath(conversationId));
+    }
+
+    // Archived messages with id below beforeId (all if null), newest first, at most limit of them
+    public List<Message> readBefore(Long conversationId, Long beforeId, int limit) {
+        List<Message> result = new ArrayList<>();
+        if (limit <= 0 || !hasArchive(conversationId)) {
+            return result;
+        }
+        try (FileChannel index = FileChannel.open(indexPath(conversationId), StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(segmentPath(conversationId), StandardOpenOption.READ)) {
+            MappedByteBuffer entries = mapIndex(index);
+            int count = entries.capacity() / INDEX_ENTRY_BYTES;
+
+            // Last block whose first id is below the cursor
+            int lo = 0;
+            int hi = count - 1;
+            int start = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (beforeId == null || firstId(entries, mid) < beforeId) {
+                    start = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+
+            for (int entry = start; entry >= 0 && result.size() < limit; entry--) {
+                List<Message> messages = readBlock(conversationId, data, entries, entry);
+                for (int i = messages.size() - 1; i >= 0 && result.size() < limit; i--) {
+                    Message message = messages.get(i);
+                    if (beforeId == null || message.getId() < beforeId) {
+                        result.add(message);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    // Every archived message of a conversation, oldest first, one block in memory at a time
+    public void forEachArchived(Long conversationId, Consumer<Message> action) {
+        if (!hasArchive(conversationId)) {
+            return;
+        }
+        try (FileChannel index = FileChannel.open(indexPath(conversationId), StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(segmentPath(conversationId), StandardOpenOption.READ)) {
+            MappedByteBuffer entries = mapIndex(index);
+            int count = entries.capacity() / INDEX_ENTRY_BYTES;
+            for (int entry = 0; entry < count; entry++) {
+                readBlock(conversationId, data, entries, entry).forEach(action);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<Message> readById(Long conversationId, Long messageId) {
+        if (!hasArchive(conversationId)) {
+            return Optional.empty();
+        }
+        try (FileChannel index = FileChannel.open(indexPath(conversationId), StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(segmentPath(conversationId), StandardOpenOption.READ)) {
+            MappedByteBuffer entries = mapIndex(index);
+            int lo = 0;
+            int hi = entries.capacity() / INDEX_ENTRY_BYTES - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (messageId < firstId(entries, mid)) {
+                    hi = mid - 1;
+                } else if (messageId > lastId(entries, mid)) {
+                    lo = mid + 1;
+                } else {
+                    return readBlock(conversationId, data, entries, mid).stream()
+                            .filter(m -> m.getId().equals(messageId))
+                            .findFirst();
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void appendBlock(Long conversationId, List<Message> messages) throws IOException {
+        byte[] compressed = compress(encode(messages));
+        synchronized (conversationLocks.computeIfAbsent(conversationId, id -> new Object())) {
+            Files.createDirectories(Paths.get(directory));
+            long offset;
+            // Data first and durable, then the index entry that makes it visible
+            try (FileChannel data = FileChannel.open(segmentPath(conversationId),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                offset = data.size();
+                writeFully(data, ByteBuffer.wrap(compressed), offset);
+                data.force(true);
+            }
+            try (FileChannel index = FileChannel.open(indexPath(conversationId),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+                entry.putLong(messages.get(0).getId());
+                entry.putLong(messages.get(messages.size() - 1).getId());
+                entry.putLong(offset);
+                entry.putInt(compressed.length);
+                entry.putInt(messages.size());
+                entry.flip();
+                // Entries are fixed size; a torn trailing entry from a crash is overwritten
+                long position = index.size() / INDEX_ENTRY_BYTES * INDEX_ENTRY_BYTES;
+                writeFully(index, entry, position);
+                index.truncate(position + INDEX_ENTRY_BYTES);
+                index.force(true);
+            }
+        }
+    }
+
+    private long lastArchivedId(Long conversationId) throws IOException {
+        if (!hasArchive(conversationId)) {
+            return 0L;
+        }
+        try (FileChannel index = FileChannel.open(indexPath(conversationId), StandardOpenOption.READ)) {
+            MappedByteBuffer entries = mapIndex(index);
+            int count = entries.capacity() / INDEX_ENTRY_BYTES;
+            return count == 0 ? 0L : lastId(entries, count - 1);
+        }
+    }
+
+    private List<Message> readBlock(Long conversationId, FileChannel data, MappedByteBuffer entries, int entry)
+            throws IOException {
+        int base = entry * INDEX_ENTRY_BYTES;
+        long offset = entries.getLong(base + 16);
+        int length = entries.getInt(base + 24);
+        MappedByteBuffer block = data.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        return decode(conversationId, inflate(block));
+    }
+
+    private static MappedByteBuffer mapIndex(FileChannel index) throws IOException {
+        long complete = index.size() / INDEX_ENTRY_BYTES * INDEX_ENTRY_BYTES;
+        return index.map(FileChannel.MapMode.READ_ONLY, 0, complete);
+    }
+
+    private static long firstId(ByteBuffer entries, int entry) {
+        return entries.getLong(entry * INDEX_ENTRY_BYTES);
+    }
+
+    private static long lastId(ByteBuffer entries, int entry) {
+        return entries.getLong(entry * INDEX_ENTRY_BYTES + 8);
+    }
+
+    private static byte[] encode(List<Message> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(messages.size());
+            for (Message message : messages) {
+                out.writeLong(message.getId());
+                out.writeUTF(message.getSenderEmail());
+                out.writeUTF(message.getSenderType());
+                byte[] text = message.getMessageText().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+                out.writeLong(message.getCreatedAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(message.getCreatedAt().getNano());
+                out.writeBoolean(Boolean.TRUE.equals(message.getIsRead()));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Message> decode(Long conversationId, byte[] block) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(block))) {
+            int count = in.readInt();
+            List<Message> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                String senderEmail = in.readUTF();
+                String senderType = in.readUTF();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                Message message = new Message(conversationId, senderEmail, senderType,
+                        new String(text, StandardCharsets.UTF_8));
+                message.setId(id);
+                message.setCreatedAt(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+                message.setIsRead(in.readBoolean());
+                messages.add(message);
+            }
+            return messages;
+        }
+    }
+
+    private static byte[] compress(byte[] raw) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 2);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION))) {
+            out.write(raw);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(ByteBuffer compressed) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.remaining() * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated archive block");
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private Path segmentPath(Long conversationId) {
+        return Paths.get(directory, "conv-" + conversationId + ".seg");
+    }
+
+    private Path indexPath(Long conversationId) {
+        return Paths.get(directory, "conv-" + conversationId + ".idx");
+    }
+}
@@ -0,0 +1,114 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Requests parked until a message newer than their cursor arrives in a conversation (long polling for
+// clients without an event stream). Callbacks run on a small pool of their own, off the bus dispatch
+// thread, so they may read the database. At most messaging.long-poll.max-waiters requests are parked
+// at once; past that, await refuses, which also bounds the wake-ups waiting for the pool.
+@Service
+public class MessageLongPollService implements ConversationEventListener {
+
+    private final Map<Long, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+    private final AtomicInteger waiterCount = new AtomicInteger();
+
+    @Value("${messaging.long-poll.max-waiters:10000}")
+    private int maxWaiters;
+
+    @Value("${messaging.long-poll.wake-threads:4}")
+    private int wakeThreads;
+
+    private ExecutorService wakeExecutor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        wakeExecutor = Executors.newFixedThreadPool(wakeThreads, runnable -> {
+            Thread thread = new Thread(runnable, "long-poll-wake-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        wakeExecutor.shutdownNow();
+    }
+
+    // Register for the first message with an id above "after". The returned handle unregisters;
+    // null means too many requests are already parked and the caller should answer right away.
+    public Runnable await(Long conversationId, Long after, Consumer<Message> onMessage) {
+        if (waiterCount.incrementAndGet() > maxWaiters) {
+            waiterCount.decrementAndGet();
+            return null;
+        }
+        Waiter waiter = new Waiter(after, onMessage);
+        waiters.compute(conversationId, (id, set) -> {
+            Set<Waiter> parked = set == null ? ConcurrentHashMap.newKeySet() : set;
+            parked.add(waiter);
+            return parked;
+        });
+        return () -> remove(conversationId, waiter);
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.MESSAGE_SENT.equals(event.getType())) {
+                publish(event.toMessage());
+            }
+        }
+    }
+
+    // Completes only the waiters whose cursor the message is past; the rest keep waiting
+    public void publish(Message message) {
+        Set<Waiter> conversationWaiters = waiters.get(message.getConversationId());
+        if (conversationWaiters == null) {
+            return;
+        }
+        for (Waiter waiter : conversationWaiters) {
+            if (message.getId() > waiter.after && remove(message.getConversationId(), waiter)) {
+                wakeExecutor.execute(() -> waiter.onMessage.accept(message));
+            }
+        }
+    }
+
+    public int getWaiterCount() {
+        return waiterCount.get();
+    }
+
+    private boolean remove(Long conversationId, Waiter waiter) {
+        Set<Waiter> set = waiters.get(conversationId);
+        if (set == null || !set.remove(waiter)) {
+            return false;
+        }
+        waiterCount.decrementAndGet();
+        waiters.computeIfPresent(conversationId, (id, parked) -> parked.isEmpty() ? null : parked);
+        return true;
+    }
+
+    private static final class Waiter {
+        private final long after;
+        private final Consumer<Message> onMessage;
+
+        private Waiter(long after, Consumer<Message> onMessage) {
+            this.after = after;
+            this.onMessage = onMessage;
+        }
+    }
+}
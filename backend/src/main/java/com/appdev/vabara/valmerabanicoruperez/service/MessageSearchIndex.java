@@ -0,0 +1,405 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// In-memory inverted index over message text, partitioned by conversation: each conversation keeps its
+// own term -> message id postings as sorted primitive arrays. A search only reads the postings of the
+// caller's conversations, so its cost does not depend on how common a term is in everyone else's chats.
+//
+// The index is filled in parallel from the messages table and the archive segments at startup, and
+// updated as messages are sent. Its size is bounded by messaging.search.max-postings: a periodic sweep
+// drops the conversations that were least recently searched or written to, and a search that reaches a
+// dropped one loads it again.
+@Service
+public class MessageSearchIndex implements ConversationEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageSearchIndex.class);
+
+    private static final int REBUILD_RANGE_SIZE = 5_000;
+    private static final int REBUILD_THREADS = 4;
+    private static final int LOAD_PAGE_SIZE = 1_000;
+    private static final int SNIPPET_RADIUS = 60;
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final MessageRepository messageRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final Map<Long, ConversationPostings> conversations = new ConcurrentHashMap<>();
+    private final AtomicLong totalPostings = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final ExecutorService rebuildExecutor = Executors.newFixedThreadPool(REBUILD_THREADS);
+
+    @Value("${messaging.search.max-postings:20000000}")
+    private long maxPostings;
+
+    private volatile boolean ready;
+    private volatile boolean lostDuringRebuild;
+
+    public MessageSearchIndex(MessageRepository messageRepository, MessageArchiveService messageArchiveService) {
+        this.messageRepository = messageRepository;
+        this.messageArchiveService = messageArchiveService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        CompletableFuture.runAsync(this::rebuild, rebuildExecutor);
+    }
+
+    // Re-index every stored message, splitting the id space into ranges loaded concurrently, then every
+    // archived one. The archiver writes a block before deleting its rows, so a message it moves while
+    // the ranges are read is either in a range or already in its segment file.
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        long maxId = messageRepository.findTopByOrderByIdDesc().map(Message::getId).orElse(0L);
+
+        List<CompletableFuture<Void>> ranges = new ArrayList<>();
+        for (long start = 1; start <= maxId; start += REBUILD_RANGE_SIZE) {
+            long rangeStart = start;
+            long rangeEnd = Math.min(start + REBUILD_RANGE_SIZE - 1, maxId);
+            ranges.add(CompletableFuture.runAsync(
+                    () -> messageRepository.findByIdBetween(rangeStart, rangeEnd).forEach(this::index),
+                    rebuildExecutor));
+        }
+        CompletableFuture.allOf(ranges.toArray(new CompletableFuture[0])).join();
+
+        List<CompletableFuture<Void>> segments = new ArrayList<>();
+        for (Long conversationId : messageArchiveService.archivedConversationIds()) {
+            segments.add(CompletableFuture.runAsync(
+                    () -> messageArchiveService.forEachArchived(conversationId, this::index), rebuildExecutor));
+        }
+        CompletableFuture.allOf(segments.toArray(new CompletableFuture[0])).join();
+
+        ready = true;
+        if (lostDuringRebuild) {
+            dropAll();
+        }
+        log.info("Message search index built: {} conversations, {} postings in {} ms",
+                conversations.size(), totalPostings.get(), System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.MESSAGE_SENT.equals(event.getType())) {
+                index(event.toMessage());
+            } else if (ConversationEvent.EVENTS_LOST.equals(event.getType())) {
+                dropAll();
+            }
+        }
+    }
+
+    // While the startup rebuild runs every conversation is created here. After it, a conversation that
+    // is not in memory (dropped, or new since) is skipped; it is read in full when it is next searched.
+    public void index(Message message) {
+        ConversationPostings postings = ready
+                ? conversations.get(message.getConversationId())
+                : conversations.computeIfAbsent(message.getConversationId(), id -> ConversationPostings.complete());
+        if (postings != null) {
+            add(postings, message);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // The newest messages in the given conversations that contain every query term, newest first
+    public List<Hit> search(String query, Collection<Long> conversationIds, int limit) {
+        List<String> terms = new ArrayList<>(tokenize(query));
+        List<Hit> hits = new ArrayList<>();
+        if (terms.isEmpty() || limit <= 0) {
+            return hits;
+        }
+        for (Long conversationId : conversationIds) {
+            ConversationPostings postings = ready ? postingsFor(conversationId) : conversations.get(conversationId);
+            if (postings == null) {
+                continue;
+            }
+            for (long messageId : postings.newestMatching(terms, limit)) {
+                hits.add(new Hit(messageId, conversationId));
+            }
+        }
+        hits.sort(Comparator.comparingLong(Hit::getMessageId).reversed());
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    // A window of the text around the first match, HTML-escaped, with every whole word that is a query
+    // term wrapped in <mark>
+    public String highlight(String text, String query) {
+        Set<String> terms = tokenize(query);
+        List<int[]> matches = new ArrayList<>();
+        Matcher token = TOKEN.matcher(text);
+        while (token.find()) {
+            if (terms.contains(token.group().toLowerCase(Locale.ROOT))) {
+                matches.add(new int[] {token.start(), token.end()});
+            }
+        }
+
+        int first = matches.isEmpty() ? 0 : matches.get(0)[0];
+        int firstEnd = matches.isEmpty() ? 0 : matches.get(0)[1];
+        int start = Math.max(0, first - SNIPPET_RADIUS);
+        int end = Math.min(text.length(), Math.max(first + SNIPPET_RADIUS * 2, firstEnd));
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append("...");
+        }
+        int i = start;
+        for (int[] match : matches) {
+            if (match[1] > end) {
+                break;
+            }
+            snippet.append(escape(text.substring(i, match[0])))
+                    .append("<mark>").append(escape(text.substring(match[0], match[1]))).append("</mark>");
+            i = match[1];
+        }
+        snippet.append(escape(text.substring(i, end)));
+        if (end < text.length()) {
+            snippet.append("...");
+        }
+        return snippet.toString();
+    }
+
+    // Drop the least recently used conversations once the index holds more than max-postings entries
+    @Scheduled(fixedDelayString = "${messaging.search.evict-interval-ms:30000}")
+    public void evictOverBudget() {
+        if (!ready || totalPostings.get() <= maxPostings) {
+            return;
+        }
+        List<Map.Entry<Long, ConversationPostings>> byLastUse = new ArrayList<>(conversations.entrySet());
+        byLastUse.sort(Comparator.comparingLong(entry -> entry.getValue().lastUsed));
+        long target = maxPostings / 10 * 9;
+        for (Map.Entry<Long, ConversationPostings> entry : byLastUse) {
+            if (totalPostings.get() <= target) {
+                break;
+            }
+            ConversationPostings postings = entry.getValue();
+            if (postings.loaded.isDone() && conversations.remove(entry.getKey(), postings)) {
+                totalPostings.addAndGet(-postings.drop());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    // Sent messages may not have been indexed: forget every conversation so each is read back from
+    // the database when next searched. While the rebuild runs this waits until it has finished.
+    public void dropAll() {
+        lostDuringRebuild = true;
+        if (!ready) {
+            return;
+        }
+        for (Map.Entry<Long, ConversationPostings> entry : conversations.entrySet()) {
+            ConversationPostings postings = entry.getValue();
+            if (conversations.remove(entry.getKey(), postings)) {
+                totalPostings.addAndGet(-postings.drop());
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("conversations", conversations.size());
+        stats.put("postings", totalPostings.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // The conversation's postings, reading all of its messages first if it is not in memory
+    private ConversationPostings postingsFor(Long conversationId) {
+        ConversationPostings loading = new ConversationPostings();
+        ConversationPostings existing = conversations.putIfAbsent(conversationId, loading);
+        if (existing != null) {
+            existing.loaded.join();
+            return existing;
+        }
+        // Registered before reading, so messages sent meanwhile are indexed by onEvents as well
+        try {
+            long after = 0L;
+            List<Message> page;
+            do {
+                page = messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(conversationId, after,
+                        PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (Message message : page) {
+                    add(loading, message);
+                    after = message.getId();
+                }
+            } while (page.size() == LOAD_PAGE_SIZE);
+            // Table first, then archive, for the same reason as in rebuild
+            messageArchiveService.forEachArchived(conversationId, message -> add(loading, message));
+            loading.loaded.complete(null);
+            return loading;
+        } catch (RuntimeException e) {
+            conversations.remove(conversationId, loading);
+            totalPostings.addAndGet(-loading.drop());
+            loading.loaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void add(ConversationPostings postings, Message message) {
+        int added = postings.add(message.getId(), tokenize(message.getMessageText()));
+        if (added > 0) {
+            totalPostings.addAndGet(added);
+        }
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        Matcher token = TOKEN.matcher(text);
+        while (token.find()) {
+            if (token.end() - token.start() > 1) {
+                terms.add(token.group().toLowerCase(Locale.ROOT));
+            }
+        }
+        return terms;
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    public static final class Hit {
+        private final Long messageId;
+        private final Long conversationId;
+
+        private Hit(Long messageId, Long conversationId) {
+            this.messageId = messageId;
+            this.conversationId = conversationId;
+        }
+
+        public Long getMessageId() {
+            return messageId;
+        }
+
+        public Long getConversationId() {
+            return conversationId;
+        }
+    }
+
+    // One conversation's postings. Guarded by its own lock; a dropped instance ignores further adds so
+    // the global count stays exact.
+    private static final class ConversationPostings {
+        private final Map<String, IdList> terms = new HashMap<>();
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private long size;
+        private boolean dropped;
+
+        private static ConversationPostings complete() {
+            ConversationPostings postings = new ConversationPostings();
+            postings.loaded.complete(null);
+            return postings;
+        }
+
+        private synchronized int add(long messageId, Set<String> messageTerms) {
+            lastUsed = System.currentTimeMillis();
+            if (dropped) {
+                return 0;
+            }
+            int added = 0;
+            for (String term : messageTerms) {
+                if (terms.computeIfAbsent(term, t -> new IdList()).add(messageId)) {
+                    added++;
+                }
+            }
+            size += added;
+            return added;
+        }
+
+        // Walk the rarest term's ids from the newest and probe the others
+        private synchronized List<Long> newestMatching(List<String> queryTerms, int limit) {
+            lastUsed = System.currentTimeMillis();
+            List<Long> matches = new ArrayList<>();
+            List<IdList> lists = new ArrayList<>();
+            for (String term : queryTerms) {
+                IdList ids = terms.get(term);
+                if (ids == null) {
+                    return matches;
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(ids -> ids.size));
+            IdList rarest = lists.get(0);
+            for (int i = rarest.size - 1; i >= 0 && matches.size() < limit; i--) {
+                long id = rarest.ids[i];
+                boolean matchesAll = true;
+                for (int j = 1; j < lists.size() && matchesAll; j++) {
+                    matchesAll = lists.get(j).contains(id);
+                }
+                if (matchesAll) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        }
+
+        private synchronized long drop() {
+            dropped = true;
+            terms.clear();
+            return size;
+        }
+    }
+
+    // Ascending message ids. Live messages arrive in id order and append; the parallel rebuild inserts.
+    private static final class IdList {
+        private long[] ids = new long[2];
+        private int size;
+
+        private boolean add(long id) {
+            int at = size == 0 || id > ids[size - 1] ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return false;
+            }
+            int insertAt = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        private boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
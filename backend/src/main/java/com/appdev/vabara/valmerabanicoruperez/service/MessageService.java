@@ -0,0 +1,156 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.ConversationRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+public class MessageService {
+
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageWriteBatcher messageWriteBatcher;
+    private final TransactionTemplate transactionTemplate;
+    private final InboxCache inboxCache;
+
+    @Value("${messaging.batch.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    public MessageService(MessageRepository messageRepository, ConversationRepository conversationRepository,
+            MessageWriteBatcher messageWriteBatcher, PlatformTransactionManager transactionManager,
+            InboxCache inboxCache) {
+        this.messageRepository = messageRepository;
+        this.conversationRepository = conversationRepository;
+        this.messageWriteBatcher = messageWriteBatcher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.inboxCache = inboxCache;
+    }
+
+    // Conversations of a user, most recent first, served from the inbox cache when possible
+    public List<Conversation> loadInbox(AuthenticatedUser user) {
+        String cacheKey = user.isStudent()
+                ? InboxCache.studentKey(user.getEmail())
+                : InboxCache.tutorKey(user.getUserId());
+        List<Conversation> conversations = inboxCache.get(cacheKey);
+        if (conversations == null) {
+            InboxCache.Load load = inboxCache.startLoad(cacheKey);
+            try {
+                conversations = user.isStudent()
+                        ? conversationRepository.findByStudentEmailOrderByLastMessageAtDesc(user.getEmail())
+                        : conversationRepository.findByTutorIdOrderByLastMessageAtDesc(user.getUserId());
+            } finally {
+                inboxCache.finishLoad(load, conversations);
+            }
+        }
+        return conversations;
+    }
+
+    // The conversation when the user is its student or its tutor; empty when it does not exist or the
+    // user is not part of it, which callers answer with 403 alike
+    public Optional<Conversation> findForParticipant(Long conversationId, AuthenticatedUser user) {
+        if (user == null) {
+            return Optional.empty();
+        }
+        return conversationRepository.findById(conversationId)
+                .filter(conversation -> participantSide(conversation, user) != null);
+    }
+
+    // "student" or "tutor": the side of the conversation the user is on, from the conversation itself
+    // rather than the token's role; null when the user is not a participant
+    public static String participantSide(Conversation conversation, AuthenticatedUser user) {
+        if (user.isStudent() && user.getEmail() != null
+                && user.getEmail().equalsIgnoreCase(conversation.getStudentEmail())) {
+            return "student";
+        }
+        if (user.isTutor() && user.getUserId() != null && user.getUserId().equals(conversation.getTutorId())) {
+            return "tutor";
+        }
+        return null;
+    }
+
+    // Unread messages across all of a user's conversations
+    public int countUnread(AuthenticatedUser user) {
+        int unread = 0;
+        for (Conversation conversation : loadInbox(user)) {
+            Integer count = conversation.getUnreadFor(user.getRole());
+            unread += count != null ? count : 0;
+        }
+        return unread;
+    }
+
+    // Save a message and update its conversation's summary and unread counter atomically.
+    // In batched mode the call returns once the group commit containing the message is durable.
+    public Message sendMessage(Message message) {
+        if (messageWriteBatcher.isEnabled()) {
+            return awaitBatchedWrite(message);
+        }
+        return saveMessage(message);
+    }
+
+    private Message saveMessage(Message message) {
+        return transactionTemplate.execute(status -> {
+            Message saved = messageRepository.save(message);
+            String preview = preview(saved.getMessageText());
+            if ("student".equals(saved.getSenderType())) {
+                conversationRepository.recordStudentMessages(saved.getConversationId(), preview, LocalDateTime.now(), 1,
+                        saved.getId());
+            } else {
+                conversationRepository.recordTutorMessages(saved.getConversationId(), preview, LocalDateTime.now(), 1,
+                        saved.getId());
+            }
+            return saved;
+        });
+    }
+
+    // Mark everything the reader received in a conversation as read
+    @Transactional
+    public void markConversationRead(Long conversationId, String readerType) {
+        if ("student".equals(readerType)) {
+            conversationRepository.clearStudentUnread(conversationId);
+        } else {
+            conversationRepository.clearTutorUnread(conversationId);
+        }
+        messageRepository.markReadForRecipient(conversationId, readerType);
+    }
+
+    // Text shown in the conversation list for the latest message
+    public static String preview(String text) {
+        return text.length() > 50 ? text.substring(0, 50) + "..." : text;
+    }
+
+    // An error reaches the client only when the message is known not to be saved, so a retry cannot
+    // duplicate it: a write still queued at the deadline is withdrawn, and one already in a batch is
+    // waited for, which the batch transaction's timeout bounds
+    private Message awaitBatchedWrite(Message message) {
+        MessageWriteBatcher.PendingWrite write = messageWriteBatcher.submit(message);
+        try {
+            try {
+                return write.future().get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (write.withdraw()) {
+                    throw new RuntimeException("Timed out waiting for message write");
+                }
+                return write.future().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for message write");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Message write failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
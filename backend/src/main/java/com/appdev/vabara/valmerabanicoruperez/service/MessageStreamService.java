@@ -0,0 +1,142 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.util.MessageMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pushes newly sent messages to clients subscribed to a conversation over Server-Sent Events.
+// Each connection has its own bounded buffer drained on a shared delivery pool, so publishing
+// never blocks the sender; a client that falls a full buffer behind is disconnected and is
+// expected to reconnect and catch up from the history endpoint.
+@Service
+public class MessageStreamService implements ConversationEventListener {
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final int BUFFER_CAPACITY = 64;
+    private static final int DELIVERY_THREADS = 4;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService deliveryExecutor = Executors.newFixedThreadPool(DELIVERY_THREADS);
+
+    public SseEmitter subscribe(Long conversationId, String email) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(conversationId, email, emitter);
+
+        subscribers.computeIfAbsent(conversationId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.MESSAGE_SENT.equals(event.getType())) {
+                publish(event.toMessage());
+            } else if (ConversationEvent.EVENTS_LOST.equals(event.getType())) {
+                disconnectAll();
+            }
+        }
+    }
+
+    // Only enqueues, so a slow client never holds up the caller
+    public void publish(Message message) {
+        Set<Subscriber> conversationSubscribers = subscribers.get(message.getConversationId());
+        if (conversationSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : conversationSubscribers) {
+            if (!subscriber.buffer.offer(message)) {
+                // Slow consumer: drop the connection instead of stalling the sender
+                remove(subscriber);
+                subscriber.emitter.complete();
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    // Messages may have been missed: close every stream so clients reconnect and catch up
+    public void disconnectAll() {
+        for (Set<Subscriber> conversationSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : conversationSubscribers) {
+                remove(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            deliveryExecutor.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Message message;
+            while ((message = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(message.getId()))
+                        .name("message")
+                        .data(MessageMapper.toMap(message, subscriber.email), MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);
+            subscriber.buffer.clear();
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // A message may have arrived between the last poll and releasing the flag
+        if (!subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.conversationId, (id, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    private static final class Subscriber {
+        private final Long conversationId;
+        private final String email;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private Subscriber(Long conversationId, String email, SseEmitter emitter) {
+            this.conversationId = conversationId;
+            this.email = email;
+            this.emitter = emitter;
+        }
+    }
+}
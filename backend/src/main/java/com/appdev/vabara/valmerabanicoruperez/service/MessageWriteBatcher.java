@@ -0,0 +1,292 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Group-commit pipeline for sent messages. Writes from concurrent requests are collected for up to
+// messaging.batch.flush-latency-ms (or until messaging.batch.max-size is reached) and committed in one
+// transaction: a single JDBC batch insert into messages plus one summary update per conversation.
+// A submitted write is acknowledged only after that transaction has committed. A write can be withdrawn
+// while it is still queued; once the flusher has claimed it, it is committed or failed within the
+// flush transaction's timeout. When a batch fails, its rows are retried one transaction each so one
+// bad row does not fail the others.
+@Component
+public class MessageWriteBatcher {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+
+    private static final String INSERT_MESSAGE_SQL = "INSERT INTO messages "
+            + "(conversation_id, sender_email, sender_type, message_text, created_at, is_read) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_CONVERSATION_SQL = "UPDATE conversations SET last_message_text = ?, "
+            + "last_message_at = ?, student_unread = student_unread + ?, tutor_unread = tutor_unread + ?, "
+            + "last_message_id = GREATEST(COALESCE(last_message_id, 0), ?) WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    // Held shared while enqueueing and exclusively while stopping, so nothing is queued after the
+    // flusher's last drain
+    private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+    @Value("${messaging.batch.enabled:false}")
+    private boolean enabled;
+
+    @Value("${messaging.batch.flush-latency-ms:10}")
+    private long flushLatencyMs;
+
+    @Value("${messaging.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${messaging.batch.ack-timeout-ms:5000}")
+    private long ackTimeoutMs;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MessageWriteBatcher(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // Bounds how long a claimed write can stay undecided
+        transactionTemplate.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(ackTimeoutMs)));
+        running = true;
+        flusher = new Thread(this::runFlushLoop, "message-write-batcher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        runningLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            runningLock.writeLock().unlock();
+        }
+        if (flusher != null) {
+            // The loop polls with a short timeout, so it sees the flag and drains the queue on its own
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // Anything the flusher did not reach in time is failed rather than left hanging
+        PendingWrite write;
+        while ((write = queue.poll()) != null) {
+            if (write.claim()) {
+                write.future.completeExceptionally(new RuntimeException("Message writer shut down"));
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // The write's future completes with the saved message (id assigned) once its batch has committed
+    public PendingWrite submit(Message message) {
+        PendingWrite write = new PendingWrite(message);
+        boolean queued;
+        runningLock.readLock().lock();
+        try {
+            queued = running && queue.offer(write);
+        } finally {
+            runningLock.readLock().unlock();
+        }
+        if (!queued && write.claim()) {
+            write.future.completeExceptionally(new RuntimeException("Message write queue is unavailable"));
+        }
+        return write;
+    }
+
+    private void runFlushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushLatencyMs, TimeUnit.MILLISECONDS);
+                if (first == null || !first.claim()) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Keep collecting until the window that opened with the first write closes
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushLatencyMs);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next.claim()) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shutdown is signalled through the running flag, not interrupts; flush what was claimed
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        try {
+            commit(batch);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // Find the rows that failed it; the rest still go in
+            for (PendingWrite write : batch) {
+                write.message.setId(null);
+                try {
+                    commit(List.of(write));
+                } catch (Exception rowFailure) {
+                    write.future.completeExceptionally(rowFailure);
+                    continue;
+                }
+                write.future.complete(write.message);
+            }
+            return;
+        }
+        batch.forEach(write -> write.future.complete(write.message));
+    }
+
+    private void commit(List<PendingWrite> writes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            insertMessages(writes);
+            updateConversationSummaries(writes);
+        });
+    }
+
+    private void insertMessages(List<PendingWrite> batch) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_MESSAGE_SQL,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingWrite write : batch) {
+                    Message message = write.message;
+                    ps.setLong(1, message.getConversationId());
+                    ps.setString(2, message.getSenderEmail());
+                    ps.setString(3, message.getSenderType());
+                    ps.setString(4, message.getMessageText());
+                    ps.setTimestamp(5, Timestamp.valueOf(message.getCreatedAt()));
+                    ps.setBoolean(6, message.getIsRead());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (PendingWrite write : batch) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Missing generated key for batched message");
+                        }
+                        write.message.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void updateConversationSummaries(List<PendingWrite> batch) {
+        // One row per conversation: latest message wins, unread counts accumulate per recipient
+        Map<Long, ConversationSummary> summaries = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            Message message = write.message;
+            ConversationSummary summary = summaries.computeIfAbsent(message.getConversationId(),
+                    id -> new ConversationSummary());
+            summary.last = message;
+            summary.maxId = Math.max(summary.maxId, message.getId());
+            if ("student".equals(message.getSenderType())) {
+                summary.tutorUnread++;
+            } else {
+                summary.studentUnread++;
+            }
+        }
+
+        List<Object[]> args = new ArrayList<>(summaries.size());
+        summaries.forEach((conversationId, summary) -> args.add(new Object[] {
+                MessageService.preview(summary.last.getMessageText()),
+                Timestamp.valueOf(summary.last.getCreatedAt()),
+                summary.studentUnread,
+                summary.tutorUnread,
+                summary.maxId,
+                conversationId
+        }));
+        jdbcTemplate.batchUpdate(UPDATE_CONVERSATION_SQL, args);
+    }
+
+    public static final class PendingWrite {
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int WITHDRAWN = 2;
+
+        private final Message message;
+        private final CompletableFuture<Message> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private PendingWrite(Message message) {
+            this.message = message;
+        }
+
+        public CompletableFuture<Message> future() {
+            return future;
+        }
+
+        // Takes the write out of the pipeline if no batch has picked it up yet. True means it will
+        // never be written; false means it is already being committed and the future will tell.
+        public boolean withdraw() {
+            if (!state.compareAndSet(QUEUED, WITHDRAWN)) {
+                return false;
+            }
+            future.completeExceptionally(new RuntimeException("Message write withdrawn"));
+            return true;
+        }
+
+        private boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED);
+        }
+    }
+
+    private static final class ConversationSummary {
+        private Message last;
+        private long maxId;
+        private int studentUnread;
+        private int tutorUnread;
+    }
+}
@@ -0,0 +1,180 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// BCrypt hashing and verification on a small dedicated pool, so a burst of logins cannot tie up every
+// request thread. Once the queue is full further requests are rejected with RejectedExecutionException,
+// which callers answer with 503. The work factor is calibrated at startup to the configured latency.
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 16;
+    private static final String CALIBRATION_INPUT = "calibration-password";
+
+    @Value("${security.password.target-latency-ms:250}")
+    private long targetLatencyMs;
+
+    @Value("${security.password.threads:0}")
+    private int threads;
+
+    @Value("${security.password.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${security.password.timeout-ms:5000}")
+    private long timeoutMs;
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile BCryptPasswordEncoder encoder;
+    private volatile int cost;
+    private volatile String dummyHash;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        cost = calibrate();
+        encoder = new BCryptPasswordEncoder(cost);
+        dummyHash = encoder.encode(CALIBRATION_INPUT);
+        log.info("Password hashing: bcrypt cost {} (target {} ms), {} threads, queue {}",
+                cost, targetLatencyMs, poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Each extra cost step doubles the work, so one measurement at the minimum cost is enough
+    // to pick the largest cost that still fits in the target latency
+    private int calibrate() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_COST);
+        probe.encode(CALIBRATION_INPUT); // warm up
+        long started = System.nanoTime();
+        probe.encode(CALIBRATION_INPUT);
+        double elapsedMs = Math.max(1.0, (System.nanoTime() - started) / 1_000_000.0);
+
+        int steps = (int) Math.floor(Math.log(targetLatencyMs / elapsedMs) / Math.log(2));
+        return Math.max(MIN_COST, Math.min(MAX_COST, MIN_COST + steps));
+    }
+
+    public String hash(String rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    // Checks a password against what is stored, which may still be plain text from before hashing
+    // was introduced. On a match, a replacement hash is included when the stored value is plain
+    // text or was hashed with a lower cost than the current one.
+    public Verification verify(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) {
+            return new Verification(false, null);
+        }
+        return submit(() -> {
+            BCryptPasswordEncoder current = encoder;
+            if (!isHashed(storedPassword)) {
+                boolean matches = MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8),
+                        storedPassword.getBytes(StandardCharsets.UTF_8));
+                return new Verification(matches, matches ? current.encode(rawPassword) : null);
+            }
+            if (!current.matches(rawPassword, storedPassword)) {
+                return new Verification(false, null);
+            }
+            return new Verification(true,
+                    current.upgradeEncoding(storedPassword) ? current.encode(rawPassword) : null);
+        });
+    }
+
+    // Spends the same bcrypt work as a real check, so a login for an unknown email takes as long
+    // as one with a wrong password and does not reveal which emails are registered
+    public void verifyDummy(String rawPassword) {
+        verify(rawPassword == null ? "" : rawPassword, dummyHash);
+    }
+
+    public static boolean isHashed(String storedPassword) {
+        return storedPassword != null && storedPassword.startsWith("$2");
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cost", cost);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public static class Verification {
+        private final boolean matches;
+        private final String upgradedHash;
+
+        public Verification(boolean matches, String upgradedHash) {
+            this.matches = matches;
+            this.upgradedHash = upgradedHash;
+        }
+
+        public boolean matches() {
+            return matches;
+        }
+
+        // New hash to store, or null when the stored value is already current
+        public String getUpgradedHash() {
+            return upgradedHash;
+        }
+    }
+}
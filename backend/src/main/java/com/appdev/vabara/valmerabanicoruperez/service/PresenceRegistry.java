@@ -0,0 +1,154 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Who is online, from client heartbeats. Last-seen times live in a ConcurrentHashMap (striped, with
+// lock-free reads) and expiry is driven by a timing wheel: each heartbeat drops the user into the
+// wheel slot for its deadline, and every tick only looks at the one slot that has come due, so
+// expiring users costs nothing per request and is independent of how many users are online.
+// Heartbeats reach one node, so they are shared over the message bus, at most one per user every
+// share-interval-seconds across all nodes; other nodes count the user as seen when the event arrives.
+@Service
+public class PresenceRegistry implements ConversationEventListener {
+
+    private static final long TICK_MS = 1000;
+
+    private final long timeoutSeconds;
+    private final long shareIntervalMs;
+    private final MessageBus messageBus;
+    private final ConcurrentHashMap<String, Presence> presences = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String>[] wheel;
+    private final AtomicLong currentTick = new AtomicLong();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "presence-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @SuppressWarnings("unchecked")
+    public PresenceRegistry(@Value("${presence.timeout-seconds:90}") long timeoutSeconds,
+                            @Value("${presence.share-interval-seconds:30}") long shareIntervalSeconds,
+                            @Lazy MessageBus messageBus) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.shareIntervalMs = TimeUnit.SECONDS.toMillis(shareIntervalSeconds);
+        this.messageBus = messageBus;
+        // One slot per tick of the timeout, plus one so a deadline never lands on the slot being swept
+        int slots = (int) (TimeUnit.SECONDS.toMillis(timeoutSeconds) / TICK_MS) + 2;
+        this.wheel = new ConcurrentLinkedQueue[slots];
+        for (int i = 0; i < slots; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        currentTick.set(System.currentTimeMillis() / TICK_MS);
+        ticker.scheduleAtFixedRate(this::advance, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public static String studentKey(String email) {
+        return "student:" + email;
+    }
+
+    public static String tutorKey(Long tutorId) {
+        return "tutor:" + tutorId;
+    }
+
+    public void heartbeat(String key) {
+        if (touch(key, false)) {
+            messageBus.publish(ConversationEvent.presence(key));
+        }
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.PRESENCE.equals(event.getType()) && event.getPresenceKey() != null) {
+                touch(event.getPresenceKey(), true);
+            }
+        }
+    }
+
+    // Record the user as seen now. Returns true when the heartbeat should be shared with other nodes,
+    // i.e. when no node has shared one for this user within the share interval.
+    private boolean touch(String key, boolean shared) {
+        long now = System.currentTimeMillis();
+        long deadlineTick = (now + TimeUnit.SECONDS.toMillis(timeoutSeconds)) / TICK_MS + 1;
+        boolean[] share = {false};
+        // Touch and re-slot under the map's lock for this key, the same lock advance() expires under,
+        // so a heartbeat can never land on an entry that is being removed
+        presences.compute(key, (k, presence) -> {
+            Presence current = presence != null ? presence : new Presence();
+            current.lastSeen = now;
+            if (shared || now - current.lastShared >= shareIntervalMs) {
+                share[0] = !shared;
+                current.lastShared = now;
+            }
+            // Only re-slot when the deadline moves to a later tick
+            if (current.deadlineTick < deadlineTick) {
+                current.deadlineTick = deadlineTick;
+                wheel[(int) (deadlineTick % wheel.length)].add(k);
+            }
+            return current;
+        });
+        return share[0];
+    }
+
+    public boolean isOnline(String key) {
+        Presence presence = presences.get(key);
+        return presence != null
+                && System.currentTimeMillis() - presence.lastSeen < TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    public Set<String> onlineKeys() {
+        Set<String> online = ConcurrentHashMap.newKeySet();
+        presences.forEach((key, presence) -> {
+            if (isOnline(key)) {
+                online.add(key);
+            }
+        });
+        return online;
+    }
+
+    public int getTrackedCount() {
+        return presences.size();
+    }
+
+    private void advance() {
+        long targetTick = System.currentTimeMillis() / TICK_MS;
+        while (currentTick.get() < targetTick) {
+            long tick = currentTick.incrementAndGet();
+            ConcurrentLinkedQueue<String> slot = wheel[(int) (tick % wheel.length)];
+            String key;
+            while ((key = slot.poll()) != null) {
+                String expiredKey = key;
+                // Users who sent a later heartbeat have been re-slotted further ahead
+                presences.computeIfPresent(expiredKey, (k, presence) ->
+                        presence.deadlineTick <= tick ? null : presence);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private static final class Presence {
+        private volatile long lastSeen;
+        // Only written inside presences.compute for this key
+        private long deadlineTick;
+        private long lastShared;
+    }
+}
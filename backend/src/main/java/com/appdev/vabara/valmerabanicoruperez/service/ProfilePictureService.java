@@ -0,0 +1,189 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+// Profile pictures live in the blob store; student and tutor rows only keep the hash, plus the hashes
+// of the thumbnails, which are made in the background after the upload has returned. Pictures stored
+// before that, as base64 text in the profile_picture column, are moved across at startup.
+@Service
+public class ProfilePictureService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfilePictureService.class);
+
+    private static final int BACKFILL_CHUNK_SIZE = 500;
+
+    private final BlobStore blobStore;
+    private final StudentService studentService;
+    private final TutorService tutorService;
+    private final ThumbnailService thumbnailService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${storage.profile-pictures.max-bytes:5242880}")
+    private long maxBytes;
+
+    public ProfilePictureService(BlobStore blobStore, StudentService studentService, TutorService tutorService,
+            ThumbnailService thumbnailService, JdbcTemplate jdbcTemplate) {
+        this.blobStore = blobStore;
+        this.studentService = studentService;
+        this.tutorService = tutorService;
+        this.thumbnailService = thumbnailService;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public String updateStudentPicture(Long studentId, MultipartFile file) throws IOException {
+        String hash = store(file);
+        studentService.updateProfilePicture(studentId, hash);
+        queueStudentThumbnails(studentId, hash);
+        return hash;
+    }
+
+    public String updateTutorPicture(Long tutorId, MultipartFile file) throws IOException {
+        String hash = store(file);
+        tutorService.updateProfilePicture(tutorId, hash);
+        queueTutorThumbnails(tutorId, hash);
+        return hash;
+    }
+
+    private void queueStudentThumbnails(Long studentId, String hash) {
+        thumbnailService.submit(hash, thumbnails -> studentService.updateThumbnails(studentId, hash,
+                thumbnails.get(ThumbnailService.CARD_SIZE), thumbnails.get(ThumbnailService.AVATAR_SIZE)));
+    }
+
+    private void queueTutorThumbnails(Long tutorId, String hash) {
+        thumbnailService.submit(hash, thumbnails -> tutorService.updateThumbnails(tutorId, hash,
+                thumbnails.get(ThumbnailService.CARD_SIZE), thumbnails.get(ThumbnailService.AVATAR_SIZE)));
+    }
+
+    private String store(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("No picture uploaded");
+        }
+        if (file.getSize() > maxBytes) {
+            throw new IllegalArgumentException("Picture is larger than " + maxBytes + " bytes");
+        }
+        try (InputStream in = file.getInputStream()) {
+            byte[] head = new byte[12];
+            int read = in.readNBytes(head, 0, head.length);
+            // WebP is only accepted when an ImageIO plugin can read it; the JDK cannot
+            String type = BlobStore.imageType(head, read);
+            if (type == null || !ThumbnailService.canDecode(type)) {
+                throw new IllegalArgumentException("Picture must be a PNG, JPEG or GIF image");
+            }
+        }
+        try (InputStream in = file.getInputStream()) {
+            return blobStore.put(in);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyPictures() {
+        migrate("student", "id");
+        migrate("tutors", "tutor_id");
+
+        Thread backfill = new Thread(this::backfillThumbnails, "thumbnail-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    // Pictures without thumbnails: just migrated, or their job was dropped or lost in a restart.
+    // Read in id order a chunk at a time, and each job waits for room in the thumbnail queue.
+    private void backfillThumbnails() {
+        try {
+            backfill("student", "id", this::queueStudentBackfill);
+            backfill("tutors", "tutor_id", this::queueTutorBackfill);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (DataAccessException e) {
+            log.warn("Thumbnail backfill stopped: {}", e.getMessage());
+        }
+    }
+
+    private void backfill(String table, String idColumn, BackfillJob job) throws InterruptedException {
+        long after = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT " + idColumn
+                    + " AS id, profile_picture_hash AS hash FROM " + table + " WHERE " + idColumn + " > ? "
+                    + "AND profile_picture_hash IS NOT NULL AND profile_thumbnail_hash IS NULL "
+                    + "ORDER BY " + idColumn + " LIMIT " + BACKFILL_CHUNK_SIZE, after);
+            for (Map<String, Object> row : rows) {
+                after = ((Number) row.get("id")).longValue();
+                job.queue(after, (String) row.get("hash"));
+            }
+            if (rows.size() < BACKFILL_CHUNK_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private void queueStudentBackfill(Long studentId, String hash) throws InterruptedException {
+        thumbnailService.submitWhenFree(hash, thumbnails -> studentService.updateThumbnails(studentId, hash,
+                thumbnails.get(ThumbnailService.CARD_SIZE), thumbnails.get(ThumbnailService.AVATAR_SIZE)));
+    }
+
+    private void queueTutorBackfill(Long tutorId, String hash) throws InterruptedException {
+        thumbnailService.submitWhenFree(hash, thumbnails -> tutorService.updateThumbnails(tutorId, hash,
+                thumbnails.get(ThumbnailService.CARD_SIZE), thumbnails.get(ThumbnailService.AVATAR_SIZE)));
+    }
+
+    private interface BackfillJob {
+        void queue(Long id, String hash) throws InterruptedException;
+    }
+
+    // One row at a time, so a large table never has all its pictures in memory at once
+    private void migrate(String table, String idColumn) {
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(
+                    "SELECT " + idColumn + " FROM " + table + " WHERE profile_picture IS NOT NULL", Long.class);
+        } catch (DataAccessException e) {
+            // No legacy column: the database was created after the move to the blob store
+            return;
+        }
+
+        int migrated = 0;
+        for (Long id : ids) {
+            String encoded = jdbcTemplate.queryForObject(
+                    "SELECT profile_picture FROM " + table + " WHERE " + idColumn + " = ?", String.class, id);
+            String hash = null;
+            if (encoded != null && !encoded.isBlank()) {
+                try {
+                    hash = blobStore.put(new ByteArrayInputStream(decode(encoded)));
+                } catch (IllegalArgumentException | IOException e) {
+                    log.warn("Skipping unreadable profile picture of {} {}: {}", table, id, e.getMessage());
+                    continue;
+                }
+            }
+            jdbcTemplate.update("UPDATE " + table + " SET profile_picture_hash = ?, profile_picture = NULL WHERE "
+                    + idColumn + " = ?", hash, id);
+            migrated++;
+        }
+        if (migrated > 0) {
+            log.info("Moved {} profile pictures from {} into the blob store", migrated, table);
+        }
+    }
+
+    // Accepts plain base64 and data URLs ("data:image/png;base64,...")
+    private static byte[] decode(String encoded) {
+        int comma = encoded.startsWith("data:") ? encoded.indexOf(',') : -1;
+        byte[] bytes = Base64.getMimeDecoder().decode(encoded.substring(comma + 1));
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("not base64");
+        }
+        return bytes;
+    }
+}
@@ -3,20 +3,28 @@ package com.appdev.vabara.valmerabanicoruperez.service;
 import com.appdev.vabara.valmerabanicoruperez.entity.RatingEntity;
 import com.appdev.vabara.valmerabanicoruperez.repository.RatingRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Service
 public class RatingService {
     private final RatingRepository ratingRepository;
+    private final TutorService tutorService;
 
-    public RatingService(RatingRepository ratingRepository) {
+    public RatingService(RatingRepository ratingRepository, TutorService tutorService) {
         this.ratingRepository = ratingRepository;
+        this.tutorService = tutorService;
     }
 
+    // Every write also moves the tutor's rating totals, in the same transaction
+
     // Create
+    @Transactional
     public RatingEntity addRating(RatingEntity rating) {
-        return ratingRepository.save(rating);
+        RatingEntity saved = ratingRepository.save(rating);
+        tutorService.ratingChanged(null, null, saved.getTutorId(), saved.getRating());
+        return saved;
     }
 
     // Read - Get all
@@ -31,22 +39,29 @@ public class RatingService {
     }
 
     // Update
+    @Transactional
     public RatingEntity updateRating(Long id, RatingEntity rating) {
-        RatingEntity existingRating = findRatingById(id);
+        RatingEntity existingRating = ratingRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Rating not found with id: " + id));
+        Long previousTutorId = existingRating.getTutorId();
+        int previous = existingRating.getRating();
         existingRating.setStudentId(rating.getStudentId());
         existingRating.setTutorId(rating.getTutorId());
         existingRating.setSessionId(rating.getSessionId());
         existingRating.setRating(rating.getRating());
         existingRating.setComments(rating.getComments());
-        return ratingRepository.save(existingRating);
+        RatingEntity saved = ratingRepository.save(existingRating);
+        tutorService.ratingChanged(previousTutorId, previous, saved.getTutorId(), saved.getRating());
+        return saved;
     }
 
     // Delete
+    @Transactional
     public void deleteRating(Long id) {
-        if (!ratingRepository.existsById(id)) {
-            throw new RuntimeException("Rating not found with id: " + id);
-        }
-        ratingRepository.deleteById(id);
+        RatingEntity existingRating = ratingRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Rating not found with id: " + id));
+        ratingRepository.delete(existingRating);
+        tutorService.ratingChanged(existingRating.getTutorId(), existingRating.getRating(), null, null);
     }
 
     // Check if exists
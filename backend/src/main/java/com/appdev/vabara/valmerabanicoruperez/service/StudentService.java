@@ -10,9 +10,14 @@ import java.util.List;
 public class StudentService {
 
     private final StudentRepository studentRepository;
+    private final UserDirectoryService userDirectoryService;
+    private final PasswordHashingService passwordHashingService;
 
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, UserDirectoryService userDirectoryService,
+            PasswordHashingService passwordHashingService) {
         this.studentRepository = studentRepository;
+        this.userDirectoryService = userDirectoryService;
+        this.passwordHashingService = passwordHashingService;
     }
 
     public StudentRepository getStudentRepository() {
@@ -20,7 +25,15 @@ public class StudentService {
     }
 
     public Student addStudent(Student student) {
-        return studentRepository.save(student);
+        if (userDirectoryService.isTakenByOther(student.getEmail(), "student", null)) {
+            throw new RuntimeException("Email is already registered");
+        }
+        if (student.getPassword() != null) {
+            student.setPassword(passwordHashingService.hash(student.getPassword()));
+        }
+        Student saved = studentRepository.save(student);
+        userDirectoryService.studentSaved(saved, null);
+        return saved;
     }
 
     public Student findStudentById(Long id) {
@@ -32,14 +45,28 @@ public class StudentService {
         Student existingStudent = findStudentById(id);
         existingStudent.setName(student.getName());
         existingStudent.setAge(student.getAge());
+        Student saved = studentRepository.save(existingStudent);
+        userDirectoryService.studentSaved(saved, saved.getEmail());
+        return saved;
+    }
+
+    public Student updateProfilePicture(Long id, String profilePictureHash) {
+        Student existingStudent = findStudentById(id);
+        existingStudent.setProfilePictureHash(profilePictureHash);
+        // The old thumbnails belong to the old picture; new ones follow from ThumbnailService
+        existingStudent.setProfileThumbnailHash(null);
+        existingStudent.setProfileAvatarHash(null);
         return studentRepository.save(existingStudent);
     }
 
+    public void updateThumbnails(Long id, String sourceHash, String thumbnailHash, String avatarHash) {
+        studentRepository.updateThumbnails(id, sourceHash, thumbnailHash, avatarHash);
+    }
+
     public void deleteStudent(Long id) {
-        if (!studentRepository.existsById(id)) {
-            throw new RuntimeException("Student not found with id: " + id);
-        }
-        studentRepository.deleteById(id);
+        Student existingStudent = findStudentById(id);
+        studentRepository.delete(existingStudent);
+        userDirectoryService.studentRemoved(existingStudent);
     }
 
     public List<Student> findAllStudents() {
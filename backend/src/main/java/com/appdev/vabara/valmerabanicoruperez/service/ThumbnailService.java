@@ -0,0 +1,255 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Fixed-size thumbnails of uploaded pictures, made off the request thread. The source is decoded once
+// and scaled down to each size in turn, largest first, so every step starts from the previous, smaller
+// image. Results go into the blob store like any other image and are handed to a callback. Work runs
+// on a small bounded pool; when its queue is full the job is dropped and the picture simply has no
+// thumbnails, which cards show as the default avatar. A picture that can never be decoded (a format
+// with no ImageIO reader, or too many pixels) gets the original as its thumbnails, so it is not
+// queued again on every start.
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Longest side in pixels: conversation headers and lists, and tutor cards
+    public static final int AVATAR_SIZE = 64;
+    public static final int CARD_SIZE = 256;
+
+    private static final int[] SIZES = { CARD_SIZE, AVATAR_SIZE };
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final BlobStore blobStore;
+
+    @Value("${storage.thumbnails.threads:2}")
+    private int threads;
+
+    @Value("${storage.thumbnails.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Larger images are refused rather than decoded, since decoding needs width * height * 4 bytes
+    @Value("${storage.thumbnails.max-pixels:40000000}")
+    private long maxPixels;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong unsupported = new AtomicLong();
+    private ThreadPoolExecutor executor;
+    // Backfill jobs may fill half the queue, leaving the rest for fresh uploads
+    private Semaphore backfillSlots;
+
+    public ThumbnailService(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        backfillSlots = new Semaphore(Math.max(1, queueCapacity / 2));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // Queues thumbnails of a stored blob; onDone receives size -> thumbnail hash
+    public void submit(String sourceHash, Consumer<Map<Integer, String>> onDone) {
+        try {
+            executor.execute(() -> run(sourceHash, onDone));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            log.warn("Thumbnail queue full, skipping blob {}", sourceHash);
+        }
+    }
+
+    // Like submit, but waits for a free backfill slot instead of dropping the job
+    public void submitWhenFree(String sourceHash, Consumer<Map<Integer, String>> onDone) throws InterruptedException {
+        backfillSlots.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    run(sourceHash, onDone);
+                } finally {
+                    backfillSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            backfillSlots.release();
+            rejected.incrementAndGet();
+            log.warn("Thumbnail queue full, skipping blob {}", sourceHash);
+        }
+    }
+
+    // Whether uploads of this type can be given thumbnails
+    public static boolean canDecode(String mimeType) {
+        return mimeType != null && ImageIO.getImageReadersByMIMEType(mimeType).hasNext();
+    }
+
+    private void run(String sourceHash, Consumer<Map<Integer, String>> onDone) {
+        try {
+            onDone.accept(createThumbnails(sourceHash));
+            completed.incrementAndGet();
+        } catch (UnsupportedImageException e) {
+            unsupported.incrementAndGet();
+            log.info("Blob {} cannot have thumbnails ({}), using the original", sourceHash, e.getMessage());
+            Map<Integer, String> original = new HashMap<>();
+            for (int size : SIZES) {
+                original.put(size, sourceHash);
+            }
+            onDone.accept(original);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.warn("Could not create thumbnails of blob {}: {}", sourceHash, e.getMessage());
+        }
+    }
+
+    private Map<Integer, String> createThumbnails(String sourceHash) throws IOException {
+        Path source = blobStore.find(sourceHash)
+                .orElseThrow(() -> new IOException("blob not found"));
+
+        BufferedImage image = decode(source);
+        Map<Integer, String> thumbnails = new HashMap<>();
+        for (int size : SIZES) {
+            image = scaleDown(image, size);
+            thumbnails.put(size, blobStore.put(new ByteArrayInputStream(encode(image))));
+        }
+        return thumbnails;
+    }
+
+    private BufferedImage decode(Path source) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new UnsupportedImageException("unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    throw new UnsupportedImageException("image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0));
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Fits the image into size x size, halving first while that stays above the target so a large
+    // photo keeps its detail with bilinear sampling. Smaller images are returned unchanged.
+    private static BufferedImage scaleDown(BufferedImage image, int size) {
+        int longest = Math.max(image.getWidth(), image.getHeight());
+        if (longest <= size) {
+            return image;
+        }
+        double scale = (double) size / longest;
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = resize(current, width, height);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    // PNG keeps transparency; everything else becomes a JPEG, which is far smaller for photos
+    private static byte[] encode(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (image.getColorModel().hasAlpha()) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            image = resize(image, image.getWidth(), image.getHeight());
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queued", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        stats.put("unsupported", unsupported.get());
+        return stats;
+    }
+
+    // Decoding will fail the same way on every attempt
+    private static class UnsupportedImageException extends IOException {
+        UnsupportedImageException(String message) {
+            super(message);
+        }
+    }
+}
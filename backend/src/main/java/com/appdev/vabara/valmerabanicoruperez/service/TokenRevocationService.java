@@ -0,0 +1,128 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.RevokedToken;
+import com.appdev.vabara.valmerabanicoruperez.repository.RevokedTokenRepository;
+import com.appdev.vabara.valmerabanicoruperez.util.BloomFilter;
+import com.appdev.vabara.valmerabanicoruperez.util.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tokens revoked at logout. Every authenticated request asks isRevoked, so the common answer ("no")
+// comes from a Bloom filter without touching the exact set; only filter hits are confirmed against
+// it. Revocations are stored in revoked_tokens so they survive restarts and reach other nodes, which
+// poll the table. Entries are purged once the token has expired, and the filter is rebuilt then.
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    // Overlap between polls, so a row committed late by another node is still picked up
+    private static final long SYNC_LOOKBACK_SECONDS = 60;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedTokens;
+    private final double falsePositiveRate;
+
+    // Digest -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime lastSync = LocalDateTime.now();
+
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+            @Value("${security.revocation.expected-tokens:100000}") long expectedTokens,
+            @Value("${security.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedTokens = expectedTokens;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedTokens, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(now)) {
+            remember(token);
+        }
+        lastSync = now;
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    public boolean isRevoked(String token) {
+        String digest = JwtUtil.tokenDigest(token);
+        if (!filter.mightContain(Base64.getDecoder().decode(digest))) {
+            return false;
+        }
+        filterHits.incrementAndGet();
+        if (revoked.containsKey(digest)) {
+            return true;
+        }
+        falsePositives.incrementAndGet();
+        return false;
+    }
+
+    public void revoke(String token, Date expiresAt) {
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault());
+        RevokedToken entry = new RevokedToken(JwtUtil.tokenDigest(token), expiry, LocalDateTime.now());
+        revokedTokenRepository.save(entry);
+        remember(entry);
+    }
+
+    // Pick up tokens revoked on other nodes
+    @Scheduled(fixedDelayString = "${security.revocation.sync-interval-ms:5000}")
+    public void syncFromDatabase() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfter(lastSync.minusSeconds(SYNC_LOOKBACK_SECONDS))) {
+            remember(token);
+        }
+        lastSync = now;
+    }
+
+    // Drop expired entries; a Bloom filter cannot forget, so build a fresh one from what remains
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt < now);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revoked.size() * 2L), falsePositiveRate);
+        revoked.keySet().forEach(digest -> rebuilt.add(Base64.getDecoder().decode(digest)));
+        filter = rebuilt;
+        // Revocations made while rebuilding may have gone into the old filter only
+        revoked.keySet().forEach(digest -> rebuilt.add(Base64.getDecoder().decode(digest)));
+
+        revokedTokenRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private void remember(RevokedToken token) {
+        long expiresAt = token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        // Add to the exact set first so a filter hit is always confirmed
+        revoked.put(token.getTokenDigest(), expiresAt);
+        filter.add(Base64.getDecoder().decode(token.getTokenDigest()));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("revoked", revoked.size());
+        stats.put("filterBits", filter.getBitCount());
+        stats.put("filterHashes", filter.getHashCount());
+        stats.put("filterHits", filterHits.get());
+        stats.put("falsePositives", falsePositives.get());
+        return stats;
+    }
+}
@@ -0,0 +1,113 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Writes a conversation transcript straight to an output stream: archived messages first, then the
+// messages table read through a forward-only streaming cursor. Only one row is held at a time, so
+// memory use does not depend on the size of the conversation.
+@Service
+public class TranscriptExportService {
+
+    private static final String TRANSCRIPT_SQL = "SELECT id, sender_email, sender_type, message_text, created_at "
+            + "FROM messages WHERE conversation_id = ? ORDER BY id";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final MessageArchiveService messageArchiveService;
+    private final ObjectMapper objectMapper;
+
+    // How long one download may stream before the container ends it
+    @Value("${messaging.export.timeout-ms:600000}")
+    private long timeoutMs;
+
+    public TranscriptExportService(DataSource dataSource, MessageArchiveService messageArchiveService,
+            ObjectMapper objectMapper) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        // MySQL Connector/J streams rows one by one instead of buffering the result set
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.messageArchiveService = messageArchiveService;
+        this.objectMapper = objectMapper;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void writeTranscript(Long conversationId, String format, OutputStream out) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write("id,sender,senderType,sentAt,text\n");
+        }
+
+        try {
+            messageArchiveService.forEachArchived(conversationId, message -> writeRow(writer, csv,
+                    message.getId(), message.getSenderEmail(), message.getSenderType(),
+                    message.getCreatedAt(), message.getMessageText()));
+
+            streamingJdbcTemplate.query(TRANSCRIPT_SQL, rs -> {
+                Timestamp sentAt = rs.getTimestamp("created_at");
+                writeRow(writer, csv, rs.getLong("id"), rs.getString("sender_email"), rs.getString("sender_type"),
+                        sentAt != null ? sentAt.toLocalDateTime() : null, rs.getString("message_text"));
+            }, conversationId);
+        } catch (UncheckedIOException e) {
+            // Client went away mid-download
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    public static String contentType(String format) {
+        return "csv".equalsIgnoreCase(format) ? "text/csv" : "application/x-ndjson";
+    }
+
+    public static String fileExtension(String format) {
+        return "csv".equalsIgnoreCase(format) ? "csv" : "jsonl";
+    }
+
+    private void writeRow(Writer writer, boolean csv, long id, String sender, String senderType,
+            LocalDateTime sentAt, String text) {
+        try {
+            if (csv) {
+                writer.write(id + "," + csvField(sender) + "," + csvField(senderType) + ","
+                        + (sentAt != null ? sentAt : "") + "," + csvField(text) + "\n");
+            } else {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", id);
+                row.put("sender", sender);
+                row.put("senderType", senderType);
+                row.put("sentAt", sentAt != null ? sentAt.toString() : null);
+                row.put("text", text);
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
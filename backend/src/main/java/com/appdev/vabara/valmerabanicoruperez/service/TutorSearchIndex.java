@@ -0,0 +1,449 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSort;
+import com.appdev.vabara.valmerabanicoruperez.repository.CatalogVersionRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory index over the tutor catalog. Tokens of each tutor's subjects, name and institution map
+// to tutor ids, matched by prefix so partial words find results while typing. Hourly rate, rating and
+// experience are kept in sorted maps so a range filter only visits tutors inside the range. A query
+// makes one pass over its candidates, keeping the best k in a bounded heap and counting the subject
+// and availability facets on the way. Filled in parallel from the tutors table at startup, then kept
+// current by reloading a tutor's row whenever it is written, on this node or (through tutor_changed
+// events on the message bus) on any other.
+@Service
+public class TutorSearchIndex implements ConversationEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TutorSearchIndex.class);
+
+    private static final int REBUILD_RANGE_SIZE = 1_000;
+    private static final int REBUILD_THREADS = 4;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final TutorRepository tutorRepository;
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Double, Set<Long>> byHourlyRate = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Double, Set<Long>> byRating = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Double, Set<Long>> byExperience = new ConcurrentSkipListMap<>();
+    private final ExecutorService rebuildExecutor = Executors.newFixedThreadPool(REBUILD_THREADS);
+    // Refreshes requested by other nodes, applied off the bus dispatch thread
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger pendingRefreshes = new AtomicInteger();
+    // Reading a row and indexing it happen under this lock, so refreshes land in the order they read
+    private final Object refreshLock = new Object();
+    // Tutors deleted while the rebuild runs, so a row it loaded just before the delete is not re-added
+    private final Set<Long> removedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean ready;
+    // Highest catalog version whose write has been applied here
+    private volatile long indexedVersion;
+
+    public TutorSearchIndex(TutorRepository tutorRepository, CatalogVersionRepository catalogVersionRepository) {
+        this.tutorRepository = tutorRepository;
+        this.catalogVersionRepository = catalogVersionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        CompletableFuture.runAsync(this::rebuild, rebuildExecutor);
+    }
+
+    // Index every stored tutor, splitting the id space into ranges loaded concurrently
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        long version = catalogVersionRepository.findCurrent().orElse(0L);
+        Long maxId = tutorRepository.findMaxTutorId();
+
+        List<CompletableFuture<Void>> ranges = new ArrayList<>();
+        for (long start = 1; maxId != null && start <= maxId; start += REBUILD_RANGE_SIZE) {
+            long rangeStart = start;
+            long rangeEnd = Math.min(start + REBUILD_RANGE_SIZE - 1, maxId);
+            ranges.add(CompletableFuture.runAsync(
+                    () -> tutorRepository.findCardsByIdBetween(rangeStart, rangeEnd).forEach(this::indexIfAbsent),
+                    rebuildExecutor));
+        }
+        CompletableFuture.allOf(ranges.toArray(new CompletableFuture[0])).join();
+
+        versionApplied(version);
+        ready = true;
+        removedDuringRebuild.clear();
+        log.info("Tutor search index built: {} tutors, {} terms in {} ms",
+                documents.size(), terms.size(), System.currentTimeMillis() - started);
+    }
+
+    // Re-reads one tutor's committed row, or every tutor's when tutorId is null, and records that the
+    // catalog has reached the given version
+    public void refresh(Long tutorId, long version) {
+        if (tutorId == null) {
+            reloadAll();
+            return;
+        }
+        synchronized (refreshLock) {
+            TutorCardDTO card = tutorRepository.findCardById(tutorId).orElse(null);
+            if (card != null) {
+                put(card);
+            } else {
+                remove(tutorId);
+            }
+        }
+        versionApplied(version);
+    }
+
+    // Replaces the whole catalog, dropping tutors that are no longer stored
+    public void reloadAll() {
+        long version = catalogVersionRepository.findCurrent().orElse(0L);
+        synchronized (refreshLock) {
+            Set<Long> stored = new HashSet<>();
+            for (TutorCardDTO card : tutorRepository.findAllCards()) {
+                stored.add(card.getTutorId());
+                put(card);
+            }
+            for (Long id : new ArrayList<>(documents.keySet())) {
+                if (!stored.contains(id)) {
+                    remove(id);
+                }
+            }
+        }
+        versionApplied(version);
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.TUTOR_CHANGED.equals(event.getType())) {
+                long version = event.getCatalogVersion() != null ? event.getCatalogVersion() : 0L;
+                queueRefresh(() -> refresh(event.getTutorId(), version));
+            } else if (ConversationEvent.EVENTS_LOST.equals(event.getType())) {
+                // Some tutor writes may never be heard of
+                queueRefresh(this::reloadAll);
+            }
+        }
+    }
+
+    private void queueRefresh(Runnable refresh) {
+        pendingRefreshes.incrementAndGet();
+        refreshExecutor.execute(() -> {
+            try {
+                refresh.run();
+            } catch (RuntimeException e) {
+                log.warn("Tutor search index refresh failed: {}", e.getMessage());
+            } finally {
+                pendingRefreshes.decrementAndGet();
+            }
+        });
+    }
+
+    private synchronized void versionApplied(long version) {
+        if (version > indexedVersion) {
+            indexedVersion = version;
+        }
+    }
+
+    // Whether results reflect the catalog at this version: built, nothing queued and the write seen
+    public boolean isCurrent(long version) {
+        return ready && pendingRefreshes.get() == 0 && indexedVersion >= version;
+    }
+
+    public void put(TutorCardDTO card) {
+        Document document = new Document(card);
+        documents.compute(card.getTutorId(), (id, previous) -> {
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            link(id, document);
+            return document;
+        });
+    }
+
+    public void remove(Long tutorId) {
+        if (!ready) {
+            removedDuringRebuild.add(tutorId);
+        }
+        documents.computeIfPresent(tutorId, (id, previous) -> {
+            unlink(id, previous);
+            return null;
+        });
+    }
+
+    // A row loaded by the rebuild never replaces one written since startup, which is at least as new,
+    // and never brings back one deleted since. The tombstone is recorded before the delete, so either
+    // this sees it or the delete removes what this added.
+    private void indexIfAbsent(TutorCardDTO card) {
+        documents.computeIfAbsent(card.getTutorId(), id -> {
+            if (removedDuringRebuild.contains(id)) {
+                return null;
+            }
+            Document document = new Document(card);
+            link(id, document);
+            return document;
+        });
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // The best `limit` tutors matching the text and filters, the total number of matches, and facet counts.
+    // Each facet is counted over the matches of every other filter, so choosing a subject still lists the
+    // other subjects with the number of tutors each would give.
+    public Map<String, Object> search(String text, TutorSearchCriteria criteria) {
+        TutorSort sort = TutorSort.from(criteria.getSort());
+        int limit = Math.max(1, Math.min(criteria.getLimit() != null ? criteria.getLimit() : DEFAULT_LIMIT, MAX_LIMIT));
+        String subject = normalize(criteria.getSubject());
+        String availability = normalize(criteria.getAvailability());
+        String location = normalize(criteria.getLocation());
+
+        Comparator<TutorCardDTO> order = sort.comparator();
+        // The worst of the current top k sits at the head, ready to be pushed out
+        PriorityQueue<TutorCardDTO> top = new PriorityQueue<>(limit + 1, order.reversed());
+        Map<String, Integer> subjectCounts = new HashMap<>();
+        Map<String, Integer> availabilityCounts = new HashMap<>();
+        Map<String, String> labels = new HashMap<>();
+        int total = 0;
+
+        for (Long id : candidates(tokenize(text), criteria)) {
+            Document document = documents.get(id);
+            if (document == null || !document.inRanges(criteria)
+                    || (location != null && (document.location == null || !document.location.startsWith(location)))) {
+                continue;
+            }
+            boolean subjectMatches = subject == null || document.subjects.containsKey(subject);
+            boolean availabilityMatches = availability == null || availability.equals(document.availability);
+
+            if (availabilityMatches) {
+                document.subjects.forEach((key, label) -> {
+                    subjectCounts.merge(key, 1, Integer::sum);
+                    labels.putIfAbsent("subject:" + key, label);
+                });
+            }
+            if (subjectMatches && document.availability != null) {
+                availabilityCounts.merge(document.availability, 1, Integer::sum);
+                labels.putIfAbsent("availability:" + document.availability, document.card.getAvailability().trim());
+            }
+            if (subjectMatches && availabilityMatches) {
+                total++;
+                top.offer(document.card);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        }
+
+        List<TutorCardDTO> data = new ArrayList<>(top);
+        data.sort(order);
+
+        Map<String, Object> facets = new HashMap<>();
+        facets.put("subjects", facet(subjectCounts, labels, "subject:"));
+        facets.put("availability", facet(availabilityCounts, labels, "availability:"));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("data", data);
+        result.put("total", total);
+        result.put("facets", facets);
+        result.put("complete", ready);
+        return result;
+    }
+
+    // Starting set for a query: tutors matching every text term, else those inside a numeric range,
+    // else everyone
+    private Collection<Long> candidates(Set<String> queryTerms, TutorSearchCriteria criteria) {
+        if (!queryTerms.isEmpty()) {
+            Set<Long> matched = null;
+            for (String term : queryTerms) {
+                Set<Long> ids = prefixMatches(term);
+                if (matched == null) {
+                    matched = ids;
+                } else {
+                    matched.retainAll(ids);
+                }
+                if (matched.isEmpty()) {
+                    break;
+                }
+            }
+            return matched;
+        }
+        if (criteria.getMinRating() != null) {
+            return union(byRating.tailMap(criteria.getMinRating(), true));
+        }
+        if (criteria.getMinExperience() != null) {
+            return union(byExperience.tailMap(criteria.getMinExperience().doubleValue(), true));
+        }
+        if (criteria.getMinRate() != null || criteria.getMaxRate() != null) {
+            return union(byHourlyRate.subMap(
+                    criteria.getMinRate() != null ? criteria.getMinRate() : Double.NEGATIVE_INFINITY, true,
+                    criteria.getMaxRate() != null ? criteria.getMaxRate() : Double.POSITIVE_INFINITY, true));
+        }
+        return documents.keySet();
+    }
+
+    private Set<Long> prefixMatches(String prefix) {
+        return union(terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    private static Set<Long> union(Map<?, Set<Long>> postings) {
+        Set<Long> ids = new HashSet<>();
+        postings.values().forEach(ids::addAll);
+        return ids;
+    }
+
+    // Facet values with their counts, most common first
+    private static List<Map<String, Object>> facet(Map<String, Integer> counts, Map<String, String> labels,
+            String labelPrefix) {
+        List<Map<String, Object>> values = new ArrayList<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> {
+                    Map<String, Object> value = new LinkedHashMap<>();
+                    value.put("value", labels.get(labelPrefix + entry.getKey()));
+                    value.put("count", entry.getValue());
+                    values.add(value);
+                });
+        return values;
+    }
+
+    // Postings sets are left in place when they empty out; the vocabulary of a tutor catalog is small
+    private void link(Long id, Document document) {
+        document.terms.forEach(term -> add(terms, term, id));
+        add(byHourlyRate, document.card.getHourlyRate(), id);
+        add(byRating, document.card.getRating(), id);
+        add(byExperience, document.experience, id);
+    }
+
+    private void unlink(Long id, Document document) {
+        document.terms.forEach(term -> drop(terms, term, id));
+        drop(byHourlyRate, document.card.getHourlyRate(), id);
+        drop(byRating, document.card.getRating(), id);
+        drop(byExperience, document.experience, id);
+    }
+
+    private static <K> void add(Map<K, Set<Long>> index, K key, Long id) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static <K> void drop(Map<K, Set<Long>> index, K key, Long id) {
+        if (key != null) {
+            Set<Long> ids = index.get(key);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tutors", documents.size());
+        stats.put("terms", terms.size());
+        stats.put("ready", ready);
+        stats.put("indexedVersion", indexedVersion);
+        stats.put("pendingRefreshes", pendingRefreshes.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // One tutor as the index sees it, derived once when the tutor is written
+    private static final class Document {
+        final TutorCardDTO card;
+        final Set<String> terms;
+        // Normalised subject -> subject as the tutor wrote it
+        final Map<String, String> subjects = new LinkedHashMap<>();
+        final String availability;
+        final String location;
+        final Double experience;
+
+        Document(TutorCardDTO card) {
+            this.card = card;
+            if (card.getExpertiseSubjects() != null) {
+                for (String subject : card.getExpertiseSubjects().split(",")) {
+                    String key = normalize(subject);
+                    if (key != null) {
+                        subjects.putIfAbsent(key, subject.trim());
+                    }
+                }
+            }
+            this.terms = tokenize(Objects.toString(card.getExpertiseSubjects(), "") + " "
+                    + Objects.toString(card.getName(), "") + " " + Objects.toString(card.getInstitution(), ""));
+            this.availability = normalize(card.getAvailability());
+            this.location = normalize(card.getLocation());
+            this.experience = card.getExperience() != null ? card.getExperience().doubleValue() : null;
+        }
+
+        // Range filters never match a missing value, as in SQL
+        boolean inRanges(TutorSearchCriteria criteria) {
+            return atLeast(card.getHourlyRate(), criteria.getMinRate())
+                    && atMost(card.getHourlyRate(), criteria.getMaxRate())
+                    && atLeast(card.getRating(), criteria.getMinRating())
+                    && atLeast(experience, criteria.getMinExperience() != null
+                            ? criteria.getMinExperience().doubleValue() : null);
+        }
+
+        private static boolean atLeast(Double value, Double bound) {
+            return bound == null || (value != null && value >= bound);
+        }
+
+        private static boolean atMost(Double value, Double bound) {
+            return bound == null || (value != null && value <= bound);
+        }
+    }
+}
@@ -1,18 +1,69 @@
 package com.appdev.vabara.valmerabanicoruperez.service;
 
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorCardDTO;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSort;
+import com.appdev.vabara.valmerabanicoruperez.entity.CatalogVersion;
 import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.repository.CatalogVersionRepository;
 import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class TutorService {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final TutorRepository tutorRepository;
+    private final UserDirectoryService userDirectoryService;
+    private final PasswordHashingService passwordHashingService;
+    private final TutorSearchIndex tutorSearchIndex;
+    // Bumped in the transaction of every tutor write, so every node reads the same catalog version
+    private final CatalogVersionRepository catalogVersionRepository;
+    private final MessageBus messageBus;
+    private final TransactionTemplate transactionTemplate;
 
-    public TutorService(TutorRepository tutorRepository) {
+    public TutorService(TutorRepository tutorRepository, UserDirectoryService userDirectoryService,
+            PasswordHashingService passwordHashingService, TutorSearchIndex tutorSearchIndex,
+            CatalogVersionRepository catalogVersionRepository, MessageBus messageBus,
+            PlatformTransactionManager transactionManager) {
         this.tutorRepository = tutorRepository;
+        this.userDirectoryService = userDirectoryService;
+        this.passwordHashingService = passwordHashingService;
+        this.tutorSearchIndex = tutorSearchIndex;
+        this.catalogVersionRepository = catalogVersionRepository;
+        this.messageBus = messageBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void createCatalogVersion() {
+        if (!catalogVersionRepository.existsById(CatalogVersion.ID)) {
+            try {
+                catalogVersionRepository.save(new CatalogVersion(CatalogVersion.ID, 0L));
+            } catch (DataIntegrityViolationException e) {
+                // Another node created it first
+            }
+        }
     }
 
     public TutorRepository getTutorRepository() {
@@ -21,12 +72,24 @@ public class TutorService {
 
     // Create
     public TutorEntity addTutor(TutorEntity tutor) {
-        return tutorRepository.save(tutor);
+        if (userDirectoryService.isTakenByOther(tutor.getEmail(), "tutor", null)) {
+            throw new RuntimeException("Email is already registered");
+        }
+        if (tutor.getPassword() != null) {
+            tutor.setPassword(passwordHashingService.hash(tutor.getPassword()));
+        }
+        TutorEntity saved = transactionTemplate.execute(status -> {
+            TutorEntity row = tutorRepository.save(tutor);
+            catalogChanged(row.getTutorId());
+            return row;
+        });
+        userDirectoryService.tutorSaved(saved, null);
+        return saved;
     }
 
-    // Read - Get all
-    public List<TutorEntity> getAllTutors() {
-        return tutorRepository.findAll();
+    // Read - Get all, as cards
+    public List<TutorCardDTO> getAllTutors() {
+        return tutorRepository.findAllCards();
     }
 
     // Read - Get by ID
@@ -35,38 +98,199 @@ public class TutorService {
                 .orElseThrow(() -> new RuntimeException("Tutor not found with id: " + id));
     }
 
+    // Read - Get one, as a card
+    public TutorCardDTO getTutorCard(Long id) {
+        return tutorRepository.findCardById(id)
+                .orElseThrow(() -> new RuntimeException("Tutor not found with id: " + id));
+    }
+
+    // Strong validator for anything read from the tutor catalog; changes only when a tutor is written
+    public String getCatalogETag() {
+        return "\"tutors-" + currentCatalogVersion() + "\"";
+    }
+
+    private long currentCatalogVersion() {
+        return catalogVersionRepository.findCurrent().orElse(0L);
+    }
+
+    // Call within the transaction writing the tutor (tutorId null: any number of tutors). The index
+    // here and on the other nodes follows the committed row, so it waits for the commit.
+    private void catalogChanged(Long tutorId) {
+        catalogVersionRepository.bump();
+        long version = currentCatalogVersion();
+        Runnable refresh = () -> {
+            tutorSearchIndex.refresh(tutorId, version);
+            messageBus.publish(ConversationEvent.tutorChanged(tutorId, version));
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh.run();
+            }
+        });
+    }
+
     // Update
     public TutorEntity updateTutor(Long id, TutorEntity tutor) {
         TutorEntity existingTutor = findTutorById(id);
+        String previousEmail = existingTutor.getEmail();
+        if (tutor.getEmail() != null && !tutor.getEmail().equalsIgnoreCase(previousEmail)
+                && userDirectoryService.isTakenByOther(tutor.getEmail(), "tutor", id)) {
+            throw new RuntimeException("Email is already registered");
+        }
         // Update all fields
         existingTutor.setName(tutor.getName());
         existingTutor.setEmail(tutor.getEmail());
-        existingTutor.setPassword(tutor.getPassword());
+        // Keep the current password unless a new one is sent
+        if (tutor.getPassword() != null && !tutor.getPassword().isEmpty()) {
+            existingTutor.setPassword(passwordHashingService.hash(tutor.getPassword()));
+        }
         existingTutor.setExpertiseSubjects(tutor.getExpertiseSubjects());
         existingTutor.setHourlyRate(tutor.getHourlyRate());
         existingTutor.setInstitution(tutor.getInstitution());
-        existingTutor.setRating(tutor.getRating());
-        existingTutor.setReviews(tutor.getReviews());
         existingTutor.setLocation(tutor.getLocation());
         existingTutor.setSchedule(tutor.getSchedule());
         existingTutor.setAvailability(tutor.getAvailability());
         existingTutor.setExperience(tutor.getExperience());
-        return tutorRepository.save(existingTutor);
+        TutorEntity saved = transactionTemplate.execute(status -> {
+            TutorEntity row = tutorRepository.save(existingTutor);
+            catalogChanged(id);
+            return row;
+        });
+        userDirectoryService.tutorSaved(saved, previousEmail);
+        return saved;
+    }
+
+    // Moves one rating (1-5; null or 0 when unrated) in the tutors' running totals, from the tutor and
+    // score it had to the ones it has now. Call within the transaction that writes the rating itself.
+    public void ratingChanged(Long previousTutorId, Integer previous, Long currentTutorId, Integer current) {
+        boolean wasRated = previousTutorId != null && previous != null && previous > 0;
+        boolean isRated = currentTutorId != null && current != null && current > 0;
+        if (wasRated && isRated && previousTutorId.equals(currentTutorId)) {
+            addRatings(currentTutorId, current - previous, 0);
+            return;
+        }
+        if (wasRated) {
+            addRatings(previousTutorId, -previous, -1);
+        }
+        if (isRated) {
+            addRatings(currentTutorId, current, 1);
+        }
+    }
+
+    private void addRatings(Long id, long sum, int count) {
+        if ((sum != 0 || count != 0) && tutorRepository.addRatings(id, sum, count) > 0) {
+            catalogChanged(id);
+        }
     }
 
-    // Update Rating only
-    public TutorEntity updateTutorRating(Long id, Double rating) {
+    public TutorEntity updateProfilePicture(Long id, String profilePictureHash) {
         TutorEntity existingTutor = findTutorById(id);
-        existingTutor.setRating(rating);
-        return tutorRepository.save(existingTutor);
+        existingTutor.setProfilePictureHash(profilePictureHash);
+        // The old thumbnails belong to the old picture; new ones follow from ThumbnailService
+        existingTutor.setProfileThumbnailHash(null);
+        existingTutor.setProfileAvatarHash(null);
+        return transactionTemplate.execute(status -> {
+            TutorEntity saved = tutorRepository.save(existingTutor);
+            catalogChanged(id);
+            return saved;
+        });
+    }
+
+    public void updateThumbnails(Long id, String sourceHash, String thumbnailHash, String avatarHash) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (tutorRepository.updateThumbnails(id, sourceHash, thumbnailHash, avatarHash) > 0) {
+                catalogChanged(id);
+            }
+        });
+    }
+
+    // Tutor id -> avatar thumbnail hash, for tutors that have one
+    public Map<Long, String> getAvatarHashes(Collection<Long> tutorIds) {
+        Map<Long, String> avatars = new HashMap<>();
+        if (!tutorIds.isEmpty()) {
+            for (Object[] row : tutorRepository.findAvatarHashes(tutorIds)) {
+                avatars.put((Long) row[0], (String) row[1]);
+            }
+        }
+        return avatars;
+    }
+
+    // Search the catalog: filters, ordering and keyset paging all run in SQL
+    public Map<String, Object> searchTutors(TutorSearchCriteria criteria) {
+        TutorSort sort = TutorSort.from(criteria.getSort());
+        int limit = Math.max(1, Math.min(criteria.getLimit() != null ? criteria.getLimit() : DEFAULT_SEARCH_LIMIT,
+                MAX_SEARCH_LIMIT));
+
+        Object afterKey = null;
+        Long afterId = null;
+        if (criteria.getCursor() != null && !criteria.getCursor().isEmpty()) {
+            String decoded = new String(Base64.getUrlDecoder().decode(criteria.getCursor()), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            afterKey = sort.parseKey(decoded.substring(0, separator));
+            afterId = Long.valueOf(decoded.substring(separator + 1));
+        }
+
+        // One extra row tells whether another page exists
+        List<TutorCardDTO> cards = tutorRepository.searchCards(criteria, sort, afterKey, afterId, limit + 1);
+        boolean hasMore = cards.size() > limit;
+        if (hasMore) {
+            cards = cards.subList(0, limit);
+        }
+
+        Map<String, Object> page = new HashMap<>();
+        page.put("data", cards);
+        page.put("hasMore", hasMore);
+        page.put("nextCursor", hasMore ? encodeCursor(sort, cards.get(cards.size() - 1)) : null);
+        return page;
+    }
+
+    // Top matches with facet counts, answered from the in-memory index. "complete" is false while the
+    // index is still building or has not yet applied the latest catalog write.
+    public Map<String, Object> discoverTutors(String text, TutorSearchCriteria criteria) {
+        long version = currentCatalogVersion();
+        Map<String, Object> result = tutorSearchIndex.search(text, criteria);
+        result.put("complete", tutorSearchIndex.isCurrent(version));
+        return result;
+    }
+
+    private static String encodeCursor(TutorSort sort, TutorCardDTO last) {
+        Object key = sort.keyOf(last);
+        String raw = (key != null ? key.toString() : "") + "|" + last.getTutorId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Fill tutor_subjects for tutors stored before it existed
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillSubjects() {
+        for (TutorEntity tutor : tutorRepository.findWithoutSubjectRows()) {
+            tutor.setExpertiseSubjects(tutor.getExpertiseSubjects());
+        }
+    }
+
+    // Rating totals for tutors stored before they existed; a one-off scan of the rating history
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillRatings() {
+        if (tutorRepository.backfillRatingTotals() == 0) {
+            return;
+        }
+        tutorRepository.recomputeAverageRatings();
+        transactionTemplate.executeWithoutResult(status -> catalogChanged(null));
     }
 
     // Delete
     public void deleteTutor(Long id) {
-        if (!tutorRepository.existsById(id)) {
-            throw new RuntimeException("Tutor not found with id: " + id);
-        }
-        tutorRepository.deleteById(id);
+        TutorEntity existingTutor = findTutorById(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            tutorRepository.delete(existingTutor);
+            catalogChanged(id);
+        });
+        userDirectoryService.tutorRemoved(existingTutor);
     }
 
     // Check if exists
@@ -5,8 +5,12 @@ import com.appdev.vabara.valmerabanicoruperez.repository.TutoringSessionReposito
 import com.appdev.vabara.valmerabanicoruperez.repository.StudentRepository;
 import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -15,16 +19,35 @@ public class TutoringSessionService {
     private final TutoringSessionRepository tutoringSessionRepository;
     private final StudentRepository studentRepository;
     private final TutorRepository tutorRepository;
+    private final TutorService tutorService;
 
     public TutoringSessionService(TutoringSessionRepository tutoringSessionRepository,
             StudentRepository studentRepository,
-            TutorRepository tutorRepository) {
+            TutorRepository tutorRepository,
+            TutorService tutorService) {
         this.tutoringSessionRepository = tutoringSessionRepository;
         this.studentRepository = studentRepository;
         this.tutorRepository = tutorRepository;
+        this.tutorService = tutorService;
+    }
+
+    // Session counters for a student or tutor, answered from the (user, date_time) indexes
+    public Map<String, Object> getSessionCounters(String role, Long userId) {
+        String id = String.valueOf(userId);
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> counters = new HashMap<>();
+        if ("tutor".equals(role)) {
+            counters.put("totalSessions", tutoringSessionRepository.countByTutorId(id));
+            counters.put("upcomingSessions", tutoringSessionRepository.countByTutorIdAndDateTimeAfter(id, now));
+        } else {
+            counters.put("totalSessions", tutoringSessionRepository.countByStudentId(id));
+            counters.put("upcomingSessions", tutoringSessionRepository.countByStudentIdAndDateTimeAfter(id, now));
+        }
+        return counters;
     }
 
     // Create
+    @Transactional
     public TutoringSessionEntity addTutoringSession(TutoringSessionEntity tutoringSession) {
         // Generate UUID if not set
         if (tutoringSession.getSessionId() == null || tutoringSession.getSessionId().isEmpty()) {
@@ -60,7 +83,9 @@ public class TutoringSessionService {
             }
         }
 
-        return tutoringSessionRepository.save(tutoringSession);
+        TutoringSessionEntity saved = tutoringSessionRepository.save(tutoringSession);
+        tutorService.ratingChanged(null, null, parseTutorId(saved.getTutorId()), saved.getRating());
+        return saved;
     }
 
     // Read - Get by ID
@@ -81,9 +106,13 @@ public class TutoringSessionService {
         return sessions;
     }
 
-    // Update
+    // Update; feedback (rating) given here moves the tutor's rating totals in the same transaction
+    @Transactional
     public TutoringSessionEntity updateTutoringSession(String id, TutoringSessionEntity tutoringSession) {
-        TutoringSessionEntity existingTutoringSession = findTutoringSessionById(id);
+        TutoringSessionEntity existingTutoringSession = tutoringSessionRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Tutoring session not found with id: " + id));
+        String previousTutorId = existingTutoringSession.getTutorId();
+        Integer previousRating = existingTutoringSession.getRating();
         existingTutoringSession.setDateTime(tutoringSession.getDateTime());
         existingTutoringSession.setDuration(tutoringSession.getDuration());
         existingTutoringSession.setStatus(tutoringSession.getStatus());
@@ -101,15 +130,20 @@ public class TutoringSessionService {
         // Populate names if they weren't provided in the update
         populateNames(existingTutoringSession);
 
-        return tutoringSessionRepository.save(existingTutoringSession);
+        TutoringSessionEntity saved = tutoringSessionRepository.save(existingTutoringSession);
+        tutorService.ratingChanged(parseTutorId(previousTutorId), previousRating,
+                parseTutorId(saved.getTutorId()), saved.getRating());
+        return saved;
     }
 
     // Delete
+    @Transactional
     public void deleteTutoringSession(String id) {
-        if (!tutoringSessionRepository.existsById(id)) {
-            throw new RuntimeException("Tutoring session not found with id: " + id);
-        }
-        tutoringSessionRepository.deleteById(id);
+        TutoringSessionEntity existingTutoringSession = tutoringSessionRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new RuntimeException("Tutoring session not found with id: " + id));
+        tutoringSessionRepository.delete(existingTutoringSession);
+        tutorService.ratingChanged(parseTutorId(existingTutoringSession.getTutorId()),
+                existingTutoringSession.getRating(), null, null);
     }
 
     // Check if exists
@@ -117,6 +151,18 @@ public class TutoringSessionService {
         return tutoringSessionRepository.existsById(id);
     }
 
+    // Session tutor ids are strings; null when missing or not a number
+    private static Long parseTutorId(String tutorId) {
+        if (tutorId == null || tutorId.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(tutorId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     // Helper method to populate student and tutor names
     private void populateNames(TutoringSessionEntity session) {
         // Populate student name if not already set
@@ -144,9 +190,7 @@ public class TutoringSessionService {
 
     // Get tutor statistics
     public com.appdev.vabara.valmerabanicoruperez.dto.TutorStatsDTO getTutorStats(String tutorId) {
-        List<TutoringSessionEntity> tutorSessions = tutoringSessionRepository.findAll().stream()
-                .filter(session -> tutorId.equals(session.getTutorId()))
-                .toList();
+        List<TutoringSessionEntity> tutorSessions = tutoringSessionRepository.findByTutorId(tutorId);
 
         int totalSessions = tutorSessions.size();
 
@@ -163,11 +207,10 @@ public class TutoringSessionService {
                 .mapToDouble(TutoringSessionEntity::getPrice)
                 .sum();
 
-        // Calculate average rating from completed sessions with ratings
-        double averageRating = tutorSessions.stream()
-                .filter(session -> session.getRating() != null && session.getRating() > 0)
-                .mapToInt(TutoringSessionEntity::getRating)
-                .average()
+        // Running average kept on the tutor row, covering session feedback and /api/ratings
+        Long id = parseTutorId(tutorId);
+        double averageRating = id == null ? 0.0 : tutorRepository.findById(id)
+                .map(tutor -> tutor.getRating() != null ? tutor.getRating() : 0.0)
                 .orElse(0.0);
 
         return new com.appdev.vabara.valmerabanicoruperez.dto.TutorStatsDTO(
@@ -0,0 +1,151 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEventListener;
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.entity.Student;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.repository.StudentRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Answers "who is this email" for students and tutors with a single map lookup. Loaded from both
+// tables at startup and written through by StudentService and TutorService. A miss falls back to the
+// database, so users registered on another node are still found; saves and deletes are announced on
+// the message bus so other nodes drop their copy.
+//
+// New registrations cannot reuse an email from either table. For older data where a student and a
+// tutor share one, the student wins everywhere, as it always did at login.
+@Service
+public class UserDirectoryService implements ConversationEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectoryService.class);
+
+    private final StudentRepository studentRepository;
+    private final TutorRepository tutorRepository;
+    private final MessageBus messageBus;
+    private final Map<String, AuthenticatedUser> usersByEmail = new ConcurrentHashMap<>();
+
+    // The bus is built from its listeners, this service among them, so it is resolved lazily
+    public UserDirectoryService(StudentRepository studentRepository, TutorRepository tutorRepository,
+            @Lazy MessageBus messageBus) {
+        this.studentRepository = studentRepository;
+        this.tutorRepository = tutorRepository;
+        this.messageBus = messageBus;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        studentRepository.findAllIdentities().forEach(this::put);
+        tutorRepository.findAllIdentities().forEach(this::put);
+        log.info("User directory loaded: {} users", usersByEmail.size());
+    }
+
+    @Override
+    public void onEvents(List<ConversationEvent> events) {
+        for (ConversationEvent event : events) {
+            if (ConversationEvent.USER_CHANGED.equals(event.getType()) && event.getUserEmail() != null) {
+                usersByEmail.remove(key(event.getUserEmail()));
+            } else if (ConversationEvent.EVENTS_LOST.equals(event.getType())) {
+                usersByEmail.clear();
+            }
+        }
+    }
+
+    public Optional<AuthenticatedUser> lookup(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        AuthenticatedUser user = usersByEmail.get(key(email));
+        if (user != null) {
+            return Optional.of(user);
+        }
+
+        Optional<AuthenticatedUser> loaded = studentRepository.findByEmail(email).map(UserDirectoryService::identityOf);
+        if (loaded.isEmpty()) {
+            loaded = tutorRepository.findByEmail(email).map(UserDirectoryService::identityOf);
+        }
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    // Whether an email belongs to someone other than the given user (null for a new registration)
+    public boolean isTakenByOther(String email, String role, Long userId) {
+        return lookup(email)
+                .filter(user -> !(user.getRole().equals(role) && user.getUserId().equals(userId)))
+                .isPresent();
+    }
+
+    public void studentSaved(Student student, String previousEmail) {
+        replace(previousEmail, identityOf(student));
+    }
+
+    public void tutorSaved(TutorEntity tutor, String previousEmail) {
+        replace(previousEmail, identityOf(tutor));
+    }
+
+    public void studentRemoved(Student student) {
+        removed(student.getEmail(), "student");
+    }
+
+    public void tutorRemoved(TutorEntity tutor) {
+        removed(tutor.getEmail(), "tutor");
+    }
+
+    public int size() {
+        return usersByEmail.size();
+    }
+
+    private void replace(String previousEmail, AuthenticatedUser user) {
+        if (previousEmail != null && !previousEmail.equalsIgnoreCase(user.getEmail())) {
+            removed(previousEmail, user.getRole());
+        }
+        if (user.getEmail() != null) {
+            put(user);
+            messageBus.publish(ConversationEvent.userChanged(user.getEmail()));
+        }
+    }
+
+    // Only drops the entry if it is this role's; a lookup then finds whoever else has the email
+    private void removed(String email, String role) {
+        if (email == null) {
+            return;
+        }
+        usersByEmail.computeIfPresent(key(email), (k, user) -> user.getRole().equals(role) ? null : user);
+        messageBus.publish(ConversationEvent.userChanged(email));
+    }
+
+    private void put(AuthenticatedUser user) {
+        usersByEmail.merge(key(user.getEmail()), user, UserDirectoryService::preferred);
+    }
+
+    // Same role: the newer entry. Student and tutor sharing an email: the student.
+    private static AuthenticatedUser preferred(AuthenticatedUser current, AuthenticatedUser candidate) {
+        return current.isStudent() && candidate.isTutor() ? current : candidate;
+    }
+
+    private static AuthenticatedUser identityOf(Student student) {
+        return new AuthenticatedUser(student.getEmail(), "student", student.getId(), student.getName());
+    }
+
+    private static AuthenticatedUser identityOf(TutorEntity tutor) {
+        return new AuthenticatedUser(tutor.getEmail(), "tutor", tutor.getTutorId(), tutor.getName());
+    }
+
+    // Emails compare case-insensitively, like the default MySQL collation
+    private static String key(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,254 @@
+package com.appdev.vabara.valmerabanicoruperez.util;
+
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// JWT signing keys shared by every node through a PKCS12 keystore file. Each key is stored under
+// its key id ("kid"), which goes into the token header so verification is a single map lookup.
+// New tokens are signed with the newest key; a new key is added every rotation period and older
+// keys stay until every token they signed has expired. Nodes pick up keys added by other nodes by
+// reloading the file when it changes, or at once when they meet an unknown kid.
+@Component
+public class JwtKeyring {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyring.class);
+
+    private static final String KEYSTORE_TYPE = "PKCS12";
+    private static final long MIN_RELOAD_INTERVAL_MS = 5_000;
+
+    @Value("${security.jwt.keystore.path:data/jwt-keystore.p12}")
+    private String keystorePath;
+
+    @Value("${security.jwt.keystore.password:}")
+    private String keystorePassword;
+
+    @Value("${security.jwt.rotation-days:7}")
+    private long rotationDays;
+
+    private volatile Map<String, SecretKey> keysById = Collections.emptyMap();
+    private volatile String activeKeyId;
+    private volatile Instant activeKeyCreated;
+    private volatile long loadedModified;
+    private volatile long lastReloadAttempt;
+
+    @PostConstruct
+    public void start() {
+        // No built-in password: a well-known one would let anyone with the file forge tokens.
+        // The dev profile supplies one for local runs.
+        if (keystorePassword == null || keystorePassword.isBlank()) {
+            throw new IllegalStateException("security.jwt.keystore.password is not set; set "
+                    + "SECURITY_JWT_KEYSTORE_PASSWORD or run with the dev profile");
+        }
+        rotateIfDue();
+    }
+
+    public String getActiveKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKey getActiveKey() {
+        return keysById.get(activeKeyId);
+    }
+
+    // Key for a token's kid, or null when no node has issued it
+    public SecretKey getVerificationKey(String keyId) {
+        if (keyId == null) {
+            return null;
+        }
+        SecretKey key = keysById.get(keyId);
+        if (key == null && System.currentTimeMillis() - lastReloadAttempt > MIN_RELOAD_INTERVAL_MS) {
+            // Possibly a key another node has just added
+            reloadIfChanged();
+            key = keysById.get(keyId);
+        }
+        return key;
+    }
+
+    @Scheduled(fixedDelayString = "${security.jwt.reload-interval-ms:60000}")
+    public synchronized void reloadIfChanged() {
+        lastReloadAttempt = System.currentTimeMillis();
+        try {
+            Path path = Paths.get(keystorePath);
+            if (Files.exists(path) && Files.getLastModifiedTime(path).toMillis() != loadedModified) {
+                apply(load(path), Files.getLastModifiedTime(path).toMillis());
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Could not reload JWT keystore {}: {}", keystorePath, e.getMessage());
+        }
+    }
+
+    // Adds a new signing key once the active one is older than the rotation period and drops keys
+    // whose tokens have all expired. The file lock keeps two nodes from rotating at the same time.
+    @Scheduled(fixedDelayString = "${security.jwt.rotation-check-ms:3600000}")
+    public synchronized void rotateIfDue() {
+        Path path = Paths.get(keystorePath);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Path lockPath = Paths.get(keystorePath + ".lock");
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock ignored = channel.lock()) {
+
+                KeyStore keyStore = Files.exists(path) ? load(path) : newKeyStore();
+                Instant now = Instant.now();
+                boolean changed = false;
+
+                String newestAlias = newestAlias(keyStore);
+                if (newestAlias == null
+                        || keyStore.getCreationDate(newestAlias).toInstant().isBefore(now.minus(rotationPeriod()))) {
+                    String keyId = now.toEpochMilli() + "-" + UUID.randomUUID().toString().substring(0, 8);
+                    keyStore.setEntry(keyId, new KeyStore.SecretKeyEntry(generateKey()), protection());
+                    log.info("Added JWT signing key {}", keyId);
+                    changed = true;
+                }
+
+                // A key signs until its successor is created, and its last token lives for the token
+                // validity after that
+                List<String> aliases = Collections.list(keyStore.aliases());
+                List<Date> created = new ArrayList<>();
+                for (String alias : aliases) {
+                    created.add(keyStore.getCreationDate(alias));
+                }
+                Instant retireBefore = now.minusSeconds(JwtUtil.JWT_TOKEN_VALIDITY);
+                for (int i = 0; i < aliases.size(); i++) {
+                    Date successorCreated = null;
+                    for (Date other : created) {
+                        if (other.after(created.get(i)) && (successorCreated == null || other.before(successorCreated))) {
+                            successorCreated = other;
+                        }
+                    }
+                    if (successorCreated != null && successorCreated.toInstant().isBefore(retireBefore)) {
+                        keyStore.deleteEntry(aliases.get(i));
+                        log.info("Retired JWT signing key {}", aliases.get(i));
+                        changed = true;
+                    }
+                }
+
+                if (changed) {
+                    save(keyStore, path);
+                }
+                apply(keyStore, Files.getLastModifiedTime(path).toMillis());
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            if (activeKeyId == null) {
+                throw new IllegalStateException("Could not initialise JWT keystore " + keystorePath, e);
+            }
+            log.warn("JWT key rotation failed, keeping current keys: {}", e.getMessage());
+        }
+    }
+
+    private void apply(KeyStore keyStore, long modified) throws GeneralSecurityException {
+        Map<String, SecretKey> keys = new HashMap<>();
+        String newest = null;
+        Date newestCreated = null;
+        for (String alias : Collections.list(keyStore.aliases())) {
+            KeyStore.Entry entry = keyStore.getEntry(alias, protection());
+            if (!(entry instanceof KeyStore.SecretKeyEntry)) {
+                continue;
+            }
+            keys.put(alias, Keys.hmacShaKeyFor(((KeyStore.SecretKeyEntry) entry).getSecretKey().getEncoded()));
+            Date created = keyStore.getCreationDate(alias);
+            if (newestCreated == null || created.after(newestCreated)) {
+                newest = alias;
+                newestCreated = created;
+            }
+        }
+        if (newest == null) {
+            throw new GeneralSecurityException("JWT keystore contains no signing keys");
+        }
+
+        keysById = keys;
+        activeKeyId = newest;
+        activeKeyCreated = newestCreated.toInstant();
+        loadedModified = modified;
+    }
+
+    private String newestAlias(KeyStore keyStore) throws GeneralSecurityException {
+        String newest = null;
+        Date newestCreated = null;
+        for (String alias : Collections.list(keyStore.aliases())) {
+            Date created = keyStore.getCreationDate(alias);
+            if (newestCreated == null || created.after(newestCreated)) {
+                newest = alias;
+                newestCreated = created;
+            }
+        }
+        return newest;
+    }
+
+    private KeyStore load(Path path) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+        try (InputStream in = Files.newInputStream(path)) {
+            keyStore.load(in, keystorePassword.toCharArray());
+        }
+        return keyStore;
+    }
+
+    private KeyStore newKeyStore() throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE_TYPE);
+        keyStore.load(null, keystorePassword.toCharArray());
+        return keyStore;
+    }
+
+    // Write to a temporary file and move it into place, so readers never see a partial keystore
+    private void save(KeyStore keyStore, Path path) throws IOException, GeneralSecurityException {
+        Path temp = Paths.get(keystorePath + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            keyStore.store(out, keystorePassword.toCharArray());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private KeyStore.PasswordProtection protection() {
+        return new KeyStore.PasswordProtection(keystorePassword.toCharArray());
+    }
+
+    private SecretKey generateKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("HmacSHA256");
+        generator.init(256);
+        return generator.generateKey();
+    }
+
+    private Duration rotationPeriod() {
+        return Duration.ofDays(rotationDays);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("activeKeyId", activeKeyId);
+        stats.put("activeKeyCreated", activeKeyCreated != null ? activeKeyCreated.toString() : null);
+        stats.put("keys", keysById.size());
+        return stats;
+    }
+}
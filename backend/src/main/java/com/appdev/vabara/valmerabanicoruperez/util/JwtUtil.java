@@ -1,27 +1,61 @@
 package com.appdev.vabara.valmerabanicoruperez.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import jakarta.servlet.http.HttpServletRequest;
 
 @Component
 public class JwtUtil {
 
-    // Secret key for signing JWT tokens (in production, this should be stored securely)
-    private SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    // Signing keys shared by all nodes; the token's kid header selects the verification key
+    private final JwtKeyring keyring;
+
+    // Parsers are immutable and thread-safe, so one instance serves every request
+    private final JwtParser jwtParser;
+
+    // Claims of tokens whose signature has already been verified, keyed by token digest. Expired
+    // entries are only removed by the scheduled sweep; while the map is full, new tokens are simply
+    // verified every time instead of cached, so no request pays for a scan.
+    private final Map<String, Claims> verifiedClaims = new ConcurrentHashMap<>();
+    private static final int MAX_CACHED_TOKENS = 100_000;
     
     // Token validity: 24 hours
     public static final long JWT_TOKEN_VALIDITY = 24 * 60 * 60;
 
+    public JwtUtil(JwtKeyring keyring) {
+        this.keyring = keyring;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        SecretKey key = keyring.getVerificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
     // Retrieve username from jwt token
     public String getUsernameFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
@@ -42,9 +76,40 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    // Parse and validate token
+    // Parse and validate token, verifying the signature only the first time a token is seen.
+    // Every caller gets its own copy, so nothing a caller does to its Claims reaches the cache.
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(SECRET_KEY).build().parseClaimsJws(token).getBody();
+        String digest = tokenDigest(token);
+        Claims cached = verifiedClaims.get(digest);
+        if (cached != null) {
+            if (!cached.getExpiration().before(new Date())) {
+                return Jwts.claims(cached);
+            }
+            verifiedClaims.remove(digest);
+        }
+
+        // Throws for bad signatures and expired tokens, which are therefore never cached
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        if (verifiedClaims.size() < MAX_CACHED_TOKENS) {
+            verifiedClaims.put(digest, Jwts.claims(claims));
+        }
+        return claims;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpiredClaims() {
+        Date now = new Date();
+        verifiedClaims.values().removeIf(claims -> claims.getExpiration().before(now));
+    }
+
+    // SHA-256 of a token, so raw tokens are never kept in memory as map keys
+    public static String tokenDigest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     // Check if the token has expired
@@ -60,18 +125,38 @@ public class JwtUtil {
         return doGenerateToken(claims, username);
     }
 
+    // Generate token that also carries the user's id and display name, so requests
+    // can be attributed without a database lookup
+    public String generateToken(String username, String userType, Long userId, String name) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userType", userType);
+        claims.put("userId", userId);
+        claims.put("name", name);
+        return doGenerateToken(claims, username);
+    }
+
+    // Verified claims of a token, or null when it is invalid or expired
+    public Claims getVerifiedClaims(String token) {
+        try {
+            return getAllClaimsFromToken(token);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     // While creating the token -
     // 1. Define  claims of the token, like Issuer, Expiration, Subject, and the ID
-    // 2. Sign the JWT using the HS512 algorithm and secret key
+    // 2. Sign the JWT with the keyring's active key, naming it in the kid header
     // 3. According to JWS Compact Serialization(https://tools.ietf.org/html/draft-ietf-jose-json-web-signature-41#section-3.1)
     //    compaction of the JWT to a URL-safe string
     private String doGenerateToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyring.getActiveKeyId())
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY * 1000))
-                .signWith(SECRET_KEY)
+                .signWith(keyring.getActiveKey())
                 .compact();
     }
 
@@ -0,0 +1,45 @@
+package com.appdev.vabara.valmerabanicoruperez.util;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+// Shared JSON shape for messages, used by the REST endpoints and the push stream
+public final class MessageMapper {
+
+    private MessageMapper() {
+    }
+
+    public static Map<String, Object> toMap(Message msg, String currentUserEmail) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", msg.getId());
+        map.put("conversationId", msg.getConversationId());
+        map.put("sender", msg.getSenderEmail());
+        map.put("text", msg.getMessageText());
+        map.put("time", formatTime(msg.getCreatedAt()));
+        map.put("isMe", msg.getSenderEmail().equals(currentUserEmail));
+        map.put("userType", msg.getSenderType());
+        return map;
+    }
+
+    public static String formatTime(LocalDateTime dateTime) {
+        if (dateTime == null)
+            return "Just now";
+
+        LocalDateTime now = LocalDateTime.now();
+        long hoursDiff = java.time.Duration.between(dateTime, now).toHours();
+
+        if (hoursDiff < 1) {
+            return "Just now";
+        } else if (hoursDiff < 24) {
+            return dateTime.format(DateTimeFormatter.ofPattern("h:mm a"));
+        } else if (hoursDiff < 48) {
+            return "Yesterday";
+        } else {
+            return dateTime.format(DateTimeFormatter.ofPattern("MMM d"));
+        }
+    }
+}
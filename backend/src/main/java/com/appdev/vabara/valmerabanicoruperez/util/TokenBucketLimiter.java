@@ -0,0 +1,120 @@
+package com.appdev.vabara.valmerabanicoruperez.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Token buckets keyed by client. Each bucket is an immutable state swapped with compare-and-set, so
+// concurrent requests never block each other. A bucket that has refilled completely holds no more
+// information than a new one, which is what lets the sweep bound memory without loosening limits.
+// Eviction only runs from the sweep; while the map is full, new clients share one overflow bucket
+// instead of getting a fresh allowance of their own.
+public class TokenBucketLimiter {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final int maxKeys;
+    private final Map<String, AtomicReference<Bucket>> buckets = new ConcurrentHashMap<>();
+    private final AtomicReference<Bucket> overflow;
+
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong limited = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int maxKeys) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / 60_000_000_000.0;
+        this.maxKeys = maxKeys;
+        this.overflow = new AtomicReference<>(new Bucket(capacity, System.nanoTime()));
+    }
+
+    public boolean tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicReference<Bucket> ref = buckets.get(key);
+        if (ref == null) {
+            ref = buckets.size() < maxKeys
+                    ? buckets.computeIfAbsent(key, k -> new AtomicReference<>(new Bucket(capacity, now)))
+                    : overflow;
+        }
+
+        while (true) {
+            Bucket current = ref.get();
+            double tokens = current.tokensAt(now, capacity, tokensPerNano);
+            if (tokens < 1) {
+                limited.incrementAndGet();
+                return false;
+            }
+            if (ref.compareAndSet(current, new Bucket(tokens - 1, now))) {
+                allowed.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // Seconds until a limited client gets its next token
+    public long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(1 / (tokensPerNano * 1_000_000_000.0)));
+    }
+
+    // Drop buckets that have refilled. If clients are still over 90% of the bound, drop the buckets
+    // closest to full, oldest first: those clients have the least of their limit left to reset.
+    public void evictIdle() {
+        long now = System.nanoTime();
+        List<Map.Entry<String, AtomicReference<Bucket>>> remaining = new ArrayList<>();
+        for (Map.Entry<String, AtomicReference<Bucket>> entry : buckets.entrySet()) {
+            if (entry.getValue().get().tokensAt(now, capacity, tokensPerNano) >= capacity) {
+                remove(entry);
+            } else {
+                remaining.add(entry);
+            }
+        }
+
+        int excess = remaining.size() - maxKeys * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        Map<String, Bucket> snapshot = new HashMap<>();
+        remaining.forEach(entry -> snapshot.put(entry.getKey(), entry.getValue().get()));
+        remaining.sort(Comparator
+                .comparingDouble((Map.Entry<String, AtomicReference<Bucket>> entry) ->
+                        -snapshot.get(entry.getKey()).tokensAt(now, capacity, tokensPerNano))
+                .thenComparingLong(entry -> snapshot.get(entry.getKey()).updatedAt));
+        for (int i = 0; i < excess; i++) {
+            remove(remaining.get(i));
+        }
+    }
+
+    private void remove(Map.Entry<String, AtomicReference<Bucket>> entry) {
+        if (buckets.remove(entry.getKey(), entry.getValue())) {
+            evicted.incrementAndGet();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("allowed", allowed.get());
+        stats.put("limited", limited.get());
+        stats.put("evicted", evicted.get());
+        stats.put("trackedKeys", buckets.size());
+        return stats;
+    }
+
+    private static class Bucket {
+        private final double tokens;
+        private final long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+
+        double tokensAt(long now, double capacity, double tokensPerNano) {
+            return Math.min(capacity, tokens + Math.max(0, now - updatedAt) * tokensPerNano);
+        }
+    }
+}
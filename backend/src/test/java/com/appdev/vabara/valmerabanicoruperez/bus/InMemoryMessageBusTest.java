@@ -0,0 +1,71 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class InMemoryMessageBusTest {
+
+    private final List<ConversationEvent> received = new CopyOnWriteArrayList<>();
+    private InMemoryMessageBus bus;
+
+    @AfterEach
+    void tearDown() {
+        bus.stop();
+    }
+
+    @Test
+    void deliversEventsInPublishOrder() {
+        bus = new InMemoryMessageBus(List.of(received::addAll));
+        bus.start();
+        for (long i = 1; i <= 1000; i++) {
+            bus.publish(ConversationEvent.messageSent(message(i)));
+        }
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.size() == 1000);
+        assertThat(received).extracting(ConversationEvent::getMessageId)
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 1000).boxed().toList());
+    }
+
+    @Test
+    void aStalledListenerNeverBlocksPublishersAndIsToldWhatWasLost() {
+        CountDownLatch release = new CountDownLatch(1);
+        bus = new InMemoryMessageBus(List.of(events -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.addAll(events);
+        }));
+        bus.start();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            for (long i = 1; i <= 20_000; i++) {
+                bus.publish(ConversationEvent.messageSent(message(i)));
+            }
+        });
+        assertThat(bus.getDroppedCount()).isPositive();
+
+        release.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> received.stream()
+                .anyMatch(event -> ConversationEvent.EVENTS_LOST.equals(event.getType())));
+    }
+
+    private static Message message(Long id) {
+        Message message = new Message(1L, "tutor@example.com", "tutor", "message " + id);
+        message.setId(id);
+        return message;
+    }
+}
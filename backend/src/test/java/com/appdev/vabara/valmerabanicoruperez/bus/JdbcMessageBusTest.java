@@ -0,0 +1,138 @@
+package com.appdev.vabara.valmerabanicoruperez.bus;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class JdbcMessageBusTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<ConversationEvent> received = new CopyOnWriteArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private JdbcMessageBus bus;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE conversation_events (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "conversation_id BIGINT NOT NULL, payload TEXT NOT NULL, created_at TIMESTAMP NOT NULL)");
+
+        bus = new JdbcMessageBus(List.of(received::addAll), jdbcTemplate, objectMapper);
+        ReflectionTestUtils.setField(bus, "pollIntervalMs", 10L);
+        ReflectionTestUtils.setField(bus, "retentionMinutes", 60L);
+        ReflectionTestUtils.setField(bus, "gapTimeoutMs", 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ReflectionTestUtils.getField(bus, "poller") != null) {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void deliversEventsInPublishOrder() {
+        bus.start();
+        for (long i = 1; i <= 500; i++) {
+            bus.publish(ConversationEvent.messageSent(message(1L + i % 3, i)));
+        }
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> received.size() == 500);
+        assertThat(received).extracting(ConversationEvent::getMessageId)
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 500).boxed().toList());
+    }
+
+    @Test
+    void anIdGapDoesNotHoldBackLaterEvents() {
+        insert(1, 101L);
+        insert(3, 103L);
+
+        bus.poll();
+
+        assertThat(received).extracting(ConversationEvent::getMessageId).containsExactly(101L, 103L);
+    }
+
+    @Test
+    void aRowThatCommitsAfterBeingSkippedIsStillDelivered() {
+        insert(1, 101L);
+        insert(4, 104L);
+        bus.poll();
+
+        // Ids 2 and 3 commit late, after the cursor moved past them
+        insert(3, 103L);
+        insert(5, 105L);
+        bus.poll();
+        insert(2, 102L);
+        bus.poll();
+        bus.poll();
+
+        assertThat(received).extracting(ConversationEvent::getMessageId)
+                .containsExactly(101L, 104L, 103L, 105L, 102L);
+    }
+
+    @Test
+    void skippedIdsAreForgottenAfterTheGapTimeout() throws InterruptedException {
+        ReflectionTestUtils.setField(bus, "gapTimeoutMs", 50L);
+        insert(1, 101L);
+        insert(3, 103L);
+        bus.poll();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        bus.poll();
+        insert(2, 102L);
+        bus.poll();
+
+        assertThat(received).extracting(ConversationEvent::getMessageId).containsExactly(101L, 103L);
+    }
+
+    @Test
+    void aFailedInsertIsReportedAsLostOnceTheDatabaseRecovers() {
+        bus.start();
+        jdbcTemplate.execute("ALTER TABLE conversation_events RENAME TO conversation_events_offline");
+        bus.publish(ConversationEvent.messageSent(message(1L, 101L)));
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> bus.getDroppedCount() == 1);
+        jdbcTemplate.execute("ALTER TABLE conversation_events_offline RENAME TO conversation_events");
+
+        // No further publishing is needed for the marker to go out
+        await().atMost(10, TimeUnit.SECONDS).until(() -> received.stream()
+                .anyMatch(event -> ConversationEvent.EVENTS_LOST.equals(event.getType())));
+        assertThat(received).extracting(ConversationEvent::getMessageId).doesNotContain(101L);
+    }
+
+    private void insert(long id, Long messageId) {
+        try {
+            jdbcTemplate.update("INSERT INTO conversation_events (id, conversation_id, payload, created_at) "
+                    + "VALUES (?, ?, ?, ?)", id, 1L,
+                    objectMapper.writeValueAsString(ConversationEvent.messageSent(message(1L, messageId))),
+                    Timestamp.valueOf(LocalDateTime.now()));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Message message(Long conversationId, Long id) {
+        Message message = new Message(conversationId, "student@example.com", "student", "message " + id);
+        message.setId(id);
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
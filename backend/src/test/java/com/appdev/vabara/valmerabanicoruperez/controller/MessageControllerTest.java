@@ -0,0 +1,167 @@
+package com.appdev.vabara.valmerabanicoruperez.controller;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.dto.AuthenticatedUser;
+import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.ConversationRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageArchiveService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageLongPollService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageSearchIndex;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageService;
+import com.appdev.vabara.valmerabanicoruperez.service.MessageStreamService;
+import com.appdev.vabara.valmerabanicoruperez.service.PresenceRegistry;
+import com.appdev.vabara.valmerabanicoruperez.service.TranscriptExportService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class MessageControllerTest {
+
+    private static final AuthenticatedUser STUDENT =
+            new AuthenticatedUser("student@example.com", "student", 3L, "Student");
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private final MessageArchiveService archive = mock(MessageArchiveService.class);
+    private final MessageLongPollService longPoll = new MessageLongPollService();
+    private MessageController controller;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(longPoll, "maxWaiters", 10);
+        ReflectionTestUtils.setField(longPoll, "wakeThreads", 1);
+        longPoll.start();
+
+        Conversation conversation = new Conversation("student@example.com", 7L, "Tutor", "Math");
+        conversation.setId(1L);
+        when(messageService.findForParticipant(eq(1L), any())).thenReturn(Optional.of(conversation));
+        when(conversationRepository.findById(1L)).thenReturn(Optional.of(conversation));
+        when(messageService.sendMessage(any())).thenAnswer(invocation -> {
+            Message saved = invocation.getArgument(0);
+            saved.setId(8L);
+            saved.setCreatedAt(LocalDateTime.now());
+            return saved;
+        });
+
+        controller = new MessageController(messageRepository, conversationRepository, messageService,
+                mock(MessageSearchIndex.class), archive, mock(MessageStreamService.class),
+                longPoll, mock(TranscriptExportService.class), mock(PresenceRegistry.class), mock(MessageBus.class),
+                mock(TutorService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        longPoll.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aLongPollWokenByANewerMessageAlsoReturnsTheOlderOneItSkipped() {
+        // Nothing past the cursor when the poll parks; 6 and 7 commit, but 7's event is delivered first
+        when(messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(eq(1L), eq(5L), any()))
+                .thenReturn(List.of(), List.of(message(6L), message(7L)));
+        DeferredResult<ResponseEntity<Map<String, Object>>> result =
+                controller.getMessagesSince(1L, 5L, 10, STUDENT, new MockHttpServletRequest());
+        assertThat(result.hasResult()).isFalse();
+
+        longPoll.publish(message(7L));
+
+        await().atMost(5, TimeUnit.SECONDS).until(result::hasResult);
+        Map<String, Object> body = ((ResponseEntity<Map<String, Object>>) result.getResult()).getBody();
+        assertThat((List<Map<String, Object>>) body.get("data")).extracting(map -> map.get("id"))
+                .containsExactly(6L, 7L);
+        assertThat(body.get("cursor")).isEqualTo(7L);
+    }
+
+    @Test
+    void historyIsRefusedToSomeoneOutsideTheConversation() {
+        AuthenticatedUser outsider = new AuthenticatedUser("outsider@example.com", "student", 9L, "Outsider");
+        when(messageService.findForParticipant(eq(1L), eq(outsider))).thenReturn(Optional.empty());
+
+        ResponseEntity<Map<String, Object>> response = controller.getMessages(1L, null, 20, outsider);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(403);
+        verifyNoInteractions(messageRepository);
+    }
+
+    @Test
+    void aMessageIsSavedOnTheSideTheSenderHoldsInTheConversation() {
+        ResponseEntity<Map<String, Object>> response = controller.sendMessage(1L, Map.of("messageText", "hello"), STUDENT);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        ArgumentCaptor<Message> saved = ArgumentCaptor.forClass(Message.class);
+        verify(messageService).sendMessage(saved.capture());
+        assertThat(saved.getValue().getSenderType()).isEqualTo("student");
+        assertThat(saved.getValue().getConversationId()).isEqualTo(1L);
+    }
+
+    @Test
+    void sendingToSomeoneElsesConversationIsRefused() {
+        // A tutor token, but not the tutor of this conversation
+        AuthenticatedUser otherTutor = new AuthenticatedUser("other@example.com", "tutor", 8L, "Other");
+
+        ResponseEntity<Map<String, Object>> response = controller.sendMessage(1L, Map.of("messageText", "hi"), otherTutor);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(403);
+        verify(messageService, never()).sendMessage(any());
+    }
+
+    @Test
+    void sendingToAMissingConversationIsNotFound() {
+        when(conversationRepository.findById(2L)).thenReturn(Optional.empty());
+
+        ResponseEntity<Map<String, Object>> response = controller.sendMessage(2L, Map.of("messageText", "hi"), STUDENT);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(404);
+        verify(messageService, never()).sendMessage(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void historyContinuesIntoTheArchiveWhenTheTableRunsOut() {
+        when(messageRepository.findByConversationIdOrderByIdDesc(eq(1L), any()))
+                .thenReturn(List.of(message(5L), message(4L)));
+        when(archive.hasArchive(1L)).thenReturn(true);
+        when(archive.readBefore(1L, 4L, 2)).thenReturn(List.of(message(3L), message(2L)));
+
+        ResponseEntity<Map<String, Object>> response = controller.getMessages(1L, null, 3, STUDENT);
+
+        Map<String, Object> body = response.getBody();
+        assertThat((List<Map<String, Object>>) body.get("data")).extracting(map -> map.get("id"))
+                .containsExactly(3L, 4L, 5L);
+        assertThat(body.get("hasMore")).isEqualTo(true);
+        assertThat(body.get("nextCursor")).isEqualTo(3L);
+    }
+
+    private static Message message(Long id) {
+        Message message = new Message(1L, "tutor@example.com", "tutor", "message " + id);
+        message.setId(id);
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
@@ -0,0 +1,72 @@
+package com.appdev.vabara.valmerabanicoruperez.controller;
+
+import com.appdev.vabara.valmerabanicoruperez.dto.TutorSearchCriteria;
+import com.appdev.vabara.valmerabanicoruperez.service.ProfilePictureService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutorService;
+import com.appdev.vabara.valmerabanicoruperez.service.TutoringSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TutorControllerTest {
+
+    private static final String ETAG = "\"tutors-7\"";
+
+    private final TutorService tutorService = mock(TutorService.class);
+    private TutorController controller;
+
+    @BeforeEach
+    void setUp() {
+        when(tutorService.getCatalogETag()).thenReturn(ETAG);
+        when(tutorService.getAllTutors()).thenReturn(List.of());
+        controller = new TutorController(tutorService, mock(TutoringSessionService.class),
+                mock(ProfilePictureService.class));
+    }
+
+    @Test
+    void aCurrentTagAnywhereInTheListIsNotModified() {
+        ResponseEntity<?> response = controller.getAllTutors(get("\"tutors-6\", W/\"tutors-7\""));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(304);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG);
+        verify(tutorService, never()).getAllTutors();
+    }
+
+    @Test
+    void anOlderTagGetsTheCatalogWithTheCurrentTag() {
+        ResponseEntity<?> response = controller.getAllTutors(get("\"tutors-6\""));
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isEqualTo(ETAG);
+    }
+
+    @Test
+    void resultsFromAnIndexThatIsNotCurrentGoOutUntagged() {
+        when(tutorService.discoverTutors(any(), any())).thenReturn(Map.of("complete", false));
+        MockHttpServletRequest request = get("\"tutors-6\"");
+
+        ResponseEntity<Map<String, Object>> response =
+                controller.discoverTutors("math", new TutorSearchCriteria(), request);
+
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isNull();
+    }
+
+    private static MockHttpServletRequest get(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tutors");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        return request;
+    }
+}
@@ -0,0 +1,142 @@
+package com.appdev.vabara.valmerabanicoruperez.repository;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.RatingEntity;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutoringSessionEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Runs the rating queries on H2 in MySQL mode. H2 evaluates every SET expression against the old row
+// as standard SQL does, while MySQL reads values already assigned earlier in the same SET; these tests
+// pin the average a statement must produce either way.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tutor-repository;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TutorRepositoryTest {
+
+    @Autowired
+    private TutorRepository tutorRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private TutoringSessionRepository tutoringSessionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void addRatingsKeepsTheAverageOfTheRunningTotals() {
+        Long id = saveTutor("ada@example.com");
+
+        tutorRepository.addRatings(id, 5, 1);
+        tutorRepository.addRatings(id, 4, 1);
+        assertTotals(id, 9L, 2, 4.5);
+
+        // A rating changed from 4 to 2 moves the sum only
+        tutorRepository.addRatings(id, -2, 0);
+        assertTotals(id, 7L, 2, 3.5);
+
+        tutorRepository.addRatings(id, -5, -1);
+        assertTotals(id, 2L, 1, 2.0);
+
+        // The last rating removed leaves no average rather than 0
+        tutorRepository.addRatings(id, -2, -1);
+        assertTotals(id, 0L, 0, null);
+    }
+
+    @Test
+    void addRatingsLeavesRowsThatAreNotBackfilledYetAlone() {
+        Long id = saveTutor("grace@example.com");
+        jdbcTemplate.update("UPDATE tutors SET rating_sum = NULL WHERE tutor_id = ?", id);
+
+        assertThat(tutorRepository.addRatings(id, 5, 1)).isZero();
+        assertTotals(id, null, 0, null);
+    }
+
+    @Test
+    void backfillCountsRatingsAndRatedSessionsOnceAndSkipsUnrated() {
+        Long id = saveTutor("alan@example.com");
+        Long done = saveTutor("edsger@example.com");
+        saveRating(id, 5);
+        saveRating(id, 2);
+        saveRating(id, 0);
+        saveSession(id, 4);
+        saveSession(id, 0);
+        saveSession(id, null);
+        saveRating(done, 1);
+        jdbcTemplate.update("UPDATE tutors SET rating_sum = NULL, reviews = 0, rating = NULL WHERE tutor_id = ?", id);
+        jdbcTemplate.update("UPDATE tutors SET rating_sum = 3, reviews = 1, rating = 3.0 WHERE tutor_id = ?", done);
+
+        assertThat(tutorRepository.backfillRatingTotals()).isEqualTo(1);
+        tutorRepository.recomputeAverageRatings();
+        assertTotals(id, 11L, 3, 11 / 3.0);
+        // Tutors that already had totals are not recounted
+        assertTotals(done, 3L, 1, 3.0);
+
+        // One-off: a second run finds nothing to fill
+        assertThat(tutorRepository.backfillRatingTotals()).isZero();
+        tutorRepository.addRatings(id, 1, 1);
+        assertTotals(id, 12L, 4, 3.0);
+    }
+
+    private Long saveTutor(String email) {
+        TutorEntity tutor = new TutorEntity();
+        tutor.setName(email);
+        tutor.setEmail(email);
+        return tutorRepository.saveAndFlush(tutor).getTutorId();
+    }
+
+    private void saveRating(Long tutorId, int score) {
+        RatingEntity rating = new RatingEntity();
+        rating.setTutorId(tutorId);
+        rating.setStudentId(1L);
+        rating.setRating(score);
+        ratingRepository.saveAndFlush(rating);
+    }
+
+    private void saveSession(Long tutorId, Integer score) {
+        TutoringSessionEntity session = new TutoringSessionEntity();
+        session.setSessionId(UUID.randomUUID().toString());
+        session.setDateTime(LocalDateTime.now());
+        session.setDuration(60);
+        session.setStatus("completed");
+        session.setTutorId(String.valueOf(tutorId));
+        session.setStudentId("1");
+        session.setRating(score);
+        tutoringSessionRepository.saveAndFlush(session);
+    }
+
+    private void assertTotals(Long id, Long ratingSum, int reviews, Double rating) {
+        entityManager.clear();
+        TutorEntity tutor = tutorRepository.findById(id).orElseThrow();
+        assertThat(tutor.getRatingSum()).isEqualTo(ratingSum);
+        assertThat(tutor.getReviews()).isEqualTo(reviews);
+        if (rating == null) {
+            assertThat(tutor.getRating()).isNull();
+        } else {
+            assertThat(tutor.getRating()).isCloseTo(rating, within(1e-9));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Conversation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboxCacheTest {
+
+    private static final String KEY = InboxCache.studentKey("student@example.com");
+
+    private InboxCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new InboxCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", 10);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+    }
+
+    @Test
+    void aLoadWithoutConcurrentWritesIsCachedAndUpdatedInPlace() {
+        InboxCache.Load load = cache.startLoad(KEY);
+        cache.finishLoad(load, List.of(conversation(1L, 0)));
+
+        cache.recordMessage(1L, 10L, "tutor", "hi", LocalDateTime.now());
+
+        assertThat(cache.get(KEY)).singleElement()
+                .satisfies(conv -> assertThat(conv.getStudentUnread()).isEqualTo(1));
+    }
+
+    @Test
+    void aLoadThatOverlapsAMessageIsNotCached() {
+        InboxCache.Load load = cache.startLoad(KEY);
+        // The send commits and its event arrives while the load is still reading; the rows it read
+        // may already count the message, so applying the event on top would count it twice
+        cache.recordMessage(1L, 10L, "tutor", "hi", LocalDateTime.now());
+        cache.finishLoad(load, List.of(conversation(1L, 1)));
+
+        assertThat(cache.get(KEY)).isNull();
+        assertThat(cache.getStats()).containsEntry("droppedLoads", 1L);
+    }
+
+    @Test
+    void anEventForAMessageTheLoadAlreadyCountedIsIgnored() {
+        // Message 10 committed before the load read the row, but its event is delivered afterwards
+        Conversation loaded = conversation(1L, 1);
+        loaded.setLastMessageId(10L);
+        InboxCache.Load load = cache.startLoad(KEY);
+        cache.finishLoad(load, List.of(loaded));
+
+        cache.recordMessage(1L, 10L, "tutor", "hi", LocalDateTime.now());
+        assertThat(cache.get(KEY)).singleElement()
+                .satisfies(conv -> assertThat(conv.getStudentUnread()).isEqualTo(1));
+
+        // Later messages still count, even when the bus delivers them out of order
+        cache.recordMessage(1L, 12L, "tutor", "later", LocalDateTime.now());
+        cache.recordMessage(1L, 11L, "tutor", "late", LocalDateTime.now());
+        assertThat(cache.get(KEY)).singleElement()
+                .satisfies(conv -> assertThat(conv.getStudentUnread()).isEqualTo(3));
+    }
+
+    @Test
+    void aWriteToAnotherConversationDoesNotDropTheLoad() {
+        InboxCache.Load load = cache.startLoad(KEY);
+        cache.recordMessage(2L, 10L, "tutor", "hi", LocalDateTime.now());
+        cache.finishLoad(load, List.of(conversation(1L, 0)));
+
+        assertThat(cache.get(KEY)).hasSize(1);
+    }
+
+    @Test
+    void aConversationCreatedDuringTheLoadDropsIt() {
+        InboxCache.Load load = cache.startLoad(KEY);
+        cache.addConversation(conversation(3L, 0));
+        cache.finishLoad(load, List.of(conversation(1L, 0)));
+
+        assertThat(cache.get(KEY)).isNull();
+    }
+
+    @Test
+    void aFailedLoadLeavesNothingPending() {
+        InboxCache.Load failed = cache.startLoad(KEY);
+        cache.finishLoad(failed, null);
+
+        InboxCache.Load load = cache.startLoad(KEY);
+        cache.finishLoad(load, List.of(conversation(1L, 0)));
+
+        assertThat(cache.get(KEY)).hasSize(1);
+    }
+
+    private static Conversation conversation(Long id, int studentUnread) {
+        Conversation conv = new Conversation("student@example.com", 7L, "Tutor", "Math");
+        conv.setId(id);
+        conv.setStudentUnread(studentUnread);
+        return conv;
+    }
+}
@@ -0,0 +1,139 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.JobLeaseRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageArchiveServiceTest {
+
+    private static final LocalDateTime OLD = LocalDateTime.now().minusDays(200);
+
+    private final List<Message> stored = new ArrayList<>();
+    private MessageRepository messageRepository;
+    private JobLeaseRepository jobLeaseRepository;
+    private MessageArchiveService archive;
+
+    @TempDir
+    Path archiveDirectory;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findByConversationIdOrderByIdAsc(anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> stored.stream()
+                        .filter(m -> m.getConversationId().equals(invocation.getArgument(0)))
+                        .limit(((Pageable) invocation.getArgument(1)).getPageSize())
+                        .toList());
+        when(messageRepository.findConversationIdsWithMessagesBefore(any())).thenAnswer(invocation -> stored.stream()
+                .filter(m -> m.getCreatedAt().isBefore(invocation.getArgument(0)))
+                .map(Message::getConversationId)
+                .distinct()
+                .toList());
+        doAnswer(invocation -> stored.removeIf(m -> ((Collection<?>) invocation.getArgument(0)).contains(m.getId())))
+                .when(messageRepository).deleteAllByIdInBatch(any());
+
+        jobLeaseRepository = mock(JobLeaseRepository.class);
+        archive = new MessageArchiveService(messageRepository, jobLeaseRepository);
+        ReflectionTestUtils.setField(archive, "enabled", true);
+        ReflectionTestUtils.setField(archive, "directory", archiveDirectory.toString());
+        ReflectionTestUtils.setField(archive, "maxAgeDays", 180L);
+        ReflectionTestUtils.setField(archive, "blockSize", 2);
+        ReflectionTestUtils.setField(archive, "leaseMs", 60_000L);
+    }
+
+    @Test
+    void oldMessagesAreMovedOutOfTheTableAndReadBackFromTheArchive() throws Exception {
+        store(1L, "first", OLD);
+        store(1L, "second", OLD);
+        store(1L, "third", OLD);
+        store(1L, "recent", LocalDateTime.now());
+
+        int archived = archive.archiveConversation(1L, LocalDateTime.now().minusDays(180));
+
+        assertThat(archived).isEqualTo(3);
+        assertThat(stored).extracting(Message::getId).containsExactly(4L);
+        assertThat(archive.readBefore(1L, null, 10)).extracting(Message::getId).containsExactly(3L, 2L, 1L);
+        assertThat(archive.readBefore(1L, 3L, 10)).extracting(Message::getId).containsExactly(2L, 1L);
+        assertThat(archive.readBefore(1L, 4L, 1)).extracting(Message::getId).containsExactly(3L);
+        assertThat(archive.readById(1L, 2L)).get().extracting(Message::getMessageText).isEqualTo("second");
+        assertThat(archive.readById(1L, 4L)).isEmpty();
+    }
+
+    @Test
+    void rowsLeftByAnInterruptedRunAreDeletedWithoutBeingArchivedTwice() throws Exception {
+        store(1L, "first", OLD);
+        store(1L, "second", OLD);
+        store(1L, "third", OLD);
+        // The first block reaches the file but the delete fails
+        doThrow(new IllegalStateException("connection lost"))
+                .doAnswer(invocation -> stored.removeIf(m -> ((Collection<?>) invocation.getArgument(0)).contains(m.getId())))
+                .when(messageRepository).deleteAllByIdInBatch(any());
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(180);
+        assertThatThrownBy(() -> archive.archiveConversation(1L, cutoff)).isInstanceOf(IllegalStateException.class);
+        assertThat(stored).hasSize(3);
+
+        archive.archiveConversation(1L, cutoff);
+
+        List<Long> archivedIds = new ArrayList<>();
+        archive.forEachArchived(1L, message -> archivedIds.add(message.getId()));
+        assertThat(archivedIds).containsExactly(1L, 2L, 3L);
+        assertThat(stored).isEmpty();
+    }
+
+    @Test
+    void theScheduledRunSkipsWhileAnotherNodeHoldsTheLease() {
+        store(1L, "first", OLD);
+        when(jobLeaseRepository.acquire(eq(MessageArchiveService.LEASE), anyString(), any(), any())).thenReturn(0);
+
+        archive.archiveOldMessages();
+
+        assertThat(stored).hasSize(1);
+        verify(messageRepository, never()).findConversationIdsWithMessagesBefore(any());
+        verify(jobLeaseRepository, never()).release(any(), any(), any());
+    }
+
+    @Test
+    void theScheduledRunArchivesUnderTheLeaseAndReleasesIt() {
+        store(1L, "first", OLD);
+        store(2L, "other", OLD);
+        when(jobLeaseRepository.acquire(eq(MessageArchiveService.LEASE), anyString(), any(), any())).thenReturn(1);
+
+        archive.archiveOldMessages();
+
+        assertThat(stored).isEmpty();
+        assertThat(archive.archivedConversationIds()).containsExactlyInAnyOrder(1L, 2L);
+        verify(jobLeaseRepository).release(eq(MessageArchiveService.LEASE), anyString(), any());
+    }
+
+    private void store(Long conversationId, String text, LocalDateTime createdAt) {
+        Message message = new Message(conversationId, "student@example.com", "student", text);
+        message.setId((long) stored.size() + 1);
+        message.setCreatedAt(createdAt);
+        stored.add(message);
+    }
+}
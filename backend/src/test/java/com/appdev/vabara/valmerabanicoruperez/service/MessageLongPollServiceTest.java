@@ -0,0 +1,70 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class MessageLongPollServiceTest {
+
+    private MessageLongPollService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MessageLongPollService();
+        ReflectionTestUtils.setField(service, "maxWaiters", 2);
+        ReflectionTestUtils.setField(service, "wakeThreads", 1);
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void aMessageOnlyReleasesTheWaitersItIsNewFor() {
+        List<Long> behind = new CopyOnWriteArrayList<>();
+        List<Long> ahead = new CopyOnWriteArrayList<>();
+        service.await(1L, 5L, message -> behind.add(message.getId()));
+        service.await(1L, 10L, message -> ahead.add(message.getId()));
+
+        service.publish(message(1L, 8L));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> behind.size() == 1);
+        assertThat(behind).containsExactly(8L);
+        assertThat(ahead).isEmpty();
+        assertThat(service.getWaiterCount()).isEqualTo(1);
+
+        service.publish(message(1L, 11L));
+        await().atMost(5, TimeUnit.SECONDS).until(() -> ahead.size() == 1);
+        assertThat(behind).containsExactly(8L);
+        assertThat(ahead).containsExactly(11L);
+        assertThat(service.getWaiterCount()).isZero();
+    }
+
+    @Test
+    void refusesWaitersPastTheCapUntilOneLeaves() {
+        Runnable first = service.await(1L, 0L, message -> { });
+        assertThat(service.await(2L, 0L, message -> { })).isNotNull();
+        assertThat(service.await(3L, 0L, message -> { })).isNull();
+
+        first.run();
+        first.run();
+        assertThat(service.getWaiterCount()).isEqualTo(1);
+        assertThat(service.await(3L, 0L, message -> { })).isNotNull();
+    }
+
+    private static Message message(Long conversationId, Long id) {
+        Message message = new Message(conversationId, "tutor@example.com", "tutor", "hi");
+        message.setId(id);
+        return message;
+    }
+}
@@ -0,0 +1,132 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import com.appdev.vabara.valmerabanicoruperez.repository.JobLeaseRepository;
+import com.appdev.vabara.valmerabanicoruperez.repository.MessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageSearchIndexTest {
+
+    private final List<Message> stored = new ArrayList<>();
+    private MessageRepository messageRepository;
+    private MessageArchiveService archive;
+    private MessageSearchIndex index;
+
+    @TempDir
+    Path archiveDirectory;
+
+    @BeforeEach
+    void setUp() {
+        messageRepository = mock(MessageRepository.class);
+        when(messageRepository.findTopByOrderByIdDesc()).thenAnswer(invocation -> stored.isEmpty()
+                ? Optional.empty() : Optional.of(stored.get(stored.size() - 1)));
+        when(messageRepository.findByIdBetween(anyLong(), anyLong())).thenAnswer(invocation -> stored.stream()
+                .filter(m -> m.getId() >= (Long) invocation.getArgument(0) && m.getId() <= (Long) invocation.getArgument(1))
+                .toList());
+        when(messageRepository.findByConversationIdAndIdGreaterThanOrderByIdAsc(anyLong(), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> stored.stream()
+                        .filter(m -> m.getConversationId().equals(invocation.getArgument(0))
+                                && m.getId() > (Long) invocation.getArgument(1))
+                        .limit(((Pageable) invocation.getArgument(2)).getPageSize())
+                        .toList());
+        when(messageRepository.findByConversationIdOrderByIdAsc(anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> stored.stream()
+                        .filter(m -> m.getConversationId().equals(invocation.getArgument(0)))
+                        .limit(((Pageable) invocation.getArgument(1)).getPageSize())
+                        .toList());
+        doAnswer(invocation -> stored.removeIf(m -> ((Collection<?>) invocation.getArgument(0)).contains(m.getId())))
+                .when(messageRepository).deleteAllByIdInBatch(any());
+
+        archive = new MessageArchiveService(messageRepository, mock(JobLeaseRepository.class));
+        ReflectionTestUtils.setField(archive, "directory", archiveDirectory.toString());
+        ReflectionTestUtils.setField(archive, "blockSize", 2);
+        index = new MessageSearchIndex(messageRepository, archive);
+        ReflectionTestUtils.setField(index, "maxPostings", 1_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    void searchOnlyReturnsMessagesFromTheGivenConversationsNewestFirst() {
+        store(1L, "the link to the worksheet");
+        store(2L, "another link for someone else");
+        store(1L, "updated link to the worksheet");
+        index.rebuild();
+
+        List<MessageSearchIndex.Hit> hits = index.search("Worksheet LINK", List.of(1L), 10);
+
+        assertThat(hits).extracting(MessageSearchIndex.Hit::getMessageId).containsExactly(3L, 1L);
+        assertThat(hits).extracting(MessageSearchIndex.Hit::getConversationId).containsOnly(1L);
+    }
+
+    @Test
+    void aDroppedConversationIsReadBackWhenSearched() {
+        for (int i = 0; i < 300; i++) {
+            store(1L + i % 3, "lesson notes number " + i);
+        }
+        index.rebuild();
+        index.evictOverBudget();
+        assertThat((Long) index.getStats().get("evictions")).isPositive();
+
+        // Messages sent to a dropped conversation are found once it is read back
+        store(1L, "fresh lesson notes");
+        index.index(stored.get(stored.size() - 1));
+
+        List<MessageSearchIndex.Hit> hits = index.search("fresh", List.of(1L, 2L, 3L), 10);
+        assertThat(hits).extracting(MessageSearchIndex.Hit::getMessageId).containsExactly(301L);
+        assertThat(index.search("notes", List.of(1L, 2L, 3L), 500)).hasSize(301);
+    }
+
+    @Test
+    void rebuildIndexesArchivedMessages() throws Exception {
+        store(1L, "old homework answers");
+        store(1L, "older homework questions");
+        store(1L, "recent homework");
+        store(2L, "unrelated homework");
+        archive.archiveConversation(1L, LocalDateTime.now().plusDays(1));
+        assertThat(stored).extracting(Message::getConversationId).containsExactly(2L);
+
+        index.rebuild();
+
+        assertThat(index.search("homework", List.of(1L), 10))
+                .extracting(MessageSearchIndex.Hit::getMessageId).containsExactly(3L, 2L, 1L);
+        assertThat(index.search("homework", List.of(1L, 2L), 10)).hasSize(4);
+    }
+
+    @Test
+    void highlightOnlyMarksWholeWords() {
+        assertThat(index.highlight("Look at that", "at")).isEqualTo("Look <mark>at</mark> that");
+        assertThat(index.highlight("<b>Math</b> at 5", "math"))
+                .isEqualTo("&lt;b&gt;<mark>Math</mark>&lt;/b&gt; at 5");
+    }
+
+    private void store(Long conversationId, String text) {
+        Message message = new Message(conversationId, "student@example.com", "student", text);
+        message.setId(stored.isEmpty() ? 1L : stored.get(stored.size() - 1).getId() + 1);
+        message.setCreatedAt(LocalDateTime.now());
+        message.setIsRead(false);
+        stored.add(message);
+    }
+}
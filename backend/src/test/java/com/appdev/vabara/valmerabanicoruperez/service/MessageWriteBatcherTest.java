@@ -0,0 +1,134 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageWriteBatcherTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private MessageWriteBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE messages (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "conversation_id BIGINT NOT NULL, sender_email VARCHAR(255) NOT NULL, "
+                + "sender_type VARCHAR(255) NOT NULL, message_text TEXT NOT NULL, "
+                + "created_at TIMESTAMP NOT NULL, is_read BOOLEAN NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE conversations (id BIGINT PRIMARY KEY, last_message_text VARCHAR(255), "
+                + "last_message_at TIMESTAMP, student_unread INT NOT NULL, tutor_unread INT NOT NULL, last_message_id BIGINT)");
+        jdbcTemplate.update("INSERT INTO conversations (id, student_unread, tutor_unread) VALUES (1, 0, 0)");
+
+        batcher = new MessageWriteBatcher(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(batcher, "enabled", true);
+        ReflectionTestUtils.setField(batcher, "flushLatencyMs", 20L);
+        ReflectionTestUtils.setField(batcher, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(batcher, "ackTimeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batcher.stop();
+    }
+
+    @Test
+    void commitsConcurrentWritesTogetherAndUpdatesTheSummary() throws Exception {
+        batcher.start();
+
+        MessageWriteBatcher.PendingWrite first = batcher.submit(message("student", "hello"));
+        MessageWriteBatcher.PendingWrite second = batcher.submit(message("student", "again"));
+
+        Message saved = second.future().get(5, TimeUnit.SECONDS);
+        assertThat(first.future().get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(saved.getId()).isGreaterThan(first.future().get().getId());
+        assertThat(count("SELECT COUNT(*) FROM messages")).isEqualTo(2);
+        assertThat(count("SELECT tutor_unread FROM conversations WHERE id = 1")).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT last_message_text FROM conversations WHERE id = 1",
+                String.class)).isEqualTo("again");
+        assertThat(jdbcTemplate.queryForObject("SELECT last_message_id FROM conversations WHERE id = 1",
+                Long.class)).isEqualTo(saved.getId());
+    }
+
+    @Test
+    void aFailingRowDoesNotFailTheRestOfItsBatch() throws Exception {
+        // Queue everything before the flusher runs so the three writes share one batch
+        ReflectionTestUtils.setField(batcher, "running", true);
+        MessageWriteBatcher.PendingWrite good = batcher.submit(message("tutor", "fine"));
+        MessageWriteBatcher.PendingWrite bad = batcher.submit(message("tutor", null));
+        MessageWriteBatcher.PendingWrite alsoGood = batcher.submit(message("tutor", "also fine"));
+        batcher.start();
+
+        assertThat(good.future().get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThat(alsoGood.future().get(5, TimeUnit.SECONDS).getId()).isNotNull();
+        assertThatThrownBy(() -> bad.future().get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(count("SELECT COUNT(*) FROM messages")).isEqualTo(2);
+        assertThat(count("SELECT student_unread FROM conversations WHERE id = 1")).isEqualTo(2);
+    }
+
+    @Test
+    void aWithdrawnWriteIsNeverCommitted() throws Exception {
+        ReflectionTestUtils.setField(batcher, "running", true);
+        MessageWriteBatcher.PendingWrite withdrawn = batcher.submit(message("student", "never mind"));
+        assertThat(withdrawn.withdraw()).isTrue();
+        MessageWriteBatcher.PendingWrite kept = batcher.submit(message("student", "kept"));
+        batcher.start();
+
+        kept.future().get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> withdrawn.future().get()).isInstanceOf(ExecutionException.class);
+        assertThat(jdbcTemplate.queryForList("SELECT message_text FROM messages", String.class))
+                .containsExactly("kept");
+    }
+
+    @Test
+    void aCommittedWriteCanNoLongerBeWithdrawn() throws Exception {
+        batcher.start();
+        MessageWriteBatcher.PendingWrite write = batcher.submit(message("student", "sent"));
+        write.future().get(5, TimeUnit.SECONDS);
+
+        assertThat(write.withdraw()).isFalse();
+        assertThat(write.future().get().getId()).isNotNull();
+    }
+
+    @Test
+    void everyWriteCompletesAcrossShutdown() throws Exception {
+        batcher.start();
+        List<MessageWriteBatcher.PendingWrite> writes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            writes.add(batcher.submit(message("student", "message " + i)));
+        }
+        batcher.stop();
+        MessageWriteBatcher.PendingWrite late = batcher.submit(message("student", "too late"));
+
+        for (MessageWriteBatcher.PendingWrite write : writes) {
+            assertThat(write.future()).isDone();
+            assertThat(write.future()).isCompletedWithValueMatching(message -> message.getId() != null);
+        }
+        assertThat(late.future()).isCompletedExceptionally();
+        assertThat(count("SELECT COUNT(*) FROM messages")).isEqualTo(100);
+    }
+
+    private static Message message(String senderType, String text) {
+        return new Message(1L, senderType + "@example.com", senderType, text);
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,90 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.ConversationEvent;
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class PresenceRegistryTest {
+
+    private final MessageBus messageBus = mock(MessageBus.class);
+    private PresenceRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void usersWhoStopSendingHeartbeatsAreExpiredByTheWheel() {
+        registry = new PresenceRegistry(1, 30, messageBus);
+        String leaving = PresenceRegistry.studentKey("leaving@example.com");
+        String staying = PresenceRegistry.tutorKey(7L);
+
+        registry.heartbeat(leaving);
+        registry.heartbeat(staying);
+        assertThat(registry.onlineKeys()).containsExactlyInAnyOrder(leaving, staying);
+
+        // Keep one user beating while the other's slot comes due and is swept
+        long deadline = System.currentTimeMillis() + 4000;
+        while (System.currentTimeMillis() < deadline && registry.getTrackedCount() > 1) {
+            registry.heartbeat(staying);
+            sleep(200);
+        }
+
+        assertThat(registry.getTrackedCount()).isEqualTo(1);
+        assertThat(registry.isOnline(leaving)).isFalse();
+        assertThat(registry.isOnline(staying)).isTrue();
+
+        await().atMost(5, TimeUnit.SECONDS).pollInterval(Duration.ofMillis(100))
+                .until(() -> registry.getTrackedCount() == 0);
+        assertThat(registry.onlineKeys()).isEmpty();
+    }
+
+    @Test
+    void aHeartbeatIsSharedWithOtherNodesOncePerInterval() {
+        registry = new PresenceRegistry(90, 30, messageBus);
+        String key = PresenceRegistry.studentKey("student@example.com");
+
+        registry.heartbeat(key);
+        registry.heartbeat(key);
+
+        ArgumentCaptor<ConversationEvent> published = ArgumentCaptor.forClass(ConversationEvent.class);
+        verify(messageBus).publish(published.capture());
+        assertThat(published.getValue().getType()).isEqualTo(ConversationEvent.PRESENCE);
+        assertThat(published.getValue().getPresenceKey()).isEqualTo(key);
+    }
+
+    @Test
+    void aHeartbeatSharedByAnotherNodeCountsHereWithoutBeingSharedAgain() {
+        registry = new PresenceRegistry(90, 30, messageBus);
+        String key = PresenceRegistry.tutorKey(3L);
+
+        registry.onEvents(List.of(ConversationEvent.presence(key)));
+        assertThat(registry.isOnline(key)).isTrue();
+
+        // The user's next beat lands here, but another node shared one moments ago
+        registry.heartbeat(key);
+        verify(messageBus, never()).publish(any());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
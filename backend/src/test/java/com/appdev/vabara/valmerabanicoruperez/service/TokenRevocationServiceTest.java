@@ -0,0 +1,71 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.entity.RevokedToken;
+import com.appdev.vabara.valmerabanicoruperez.repository.RevokedTokenRepository;
+import com.appdev.vabara.valmerabanicoruperez.util.JwtUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+
+    @Test
+    void aTokenRevokedOnAnotherNodeIsRejectedOnceTheSyncRuns() {
+        TokenRevocationService service = new TokenRevocationService(repository, 1000, 0.01);
+        String token = "token-logged-out-elsewhere";
+        RevokedToken row = new RevokedToken(JwtUtil.tokenDigest(token), LocalDateTime.now().plusHours(1),
+                LocalDateTime.now());
+        when(repository.findByRevokedAtAfter(any())).thenReturn(List.of(row));
+        assertThat(service.isRevoked(token)).isFalse();
+
+        service.syncFromDatabase();
+
+        assertThat(service.isRevoked(token)).isTrue();
+        assertThat(service.isRevoked("token-still-valid")).isFalse();
+    }
+
+    @Test
+    void aLiveRevocationSurvivesThePurgeRebuildAndAnExpiredOneIsDropped() {
+        TokenRevocationService service = new TokenRevocationService(repository, 1000, 0.01);
+        service.revoke("token-live", new Date(System.currentTimeMillis() + 3_600_000));
+        service.revoke("token-expired", new Date(System.currentTimeMillis() - 1_000));
+
+        service.purgeExpired();
+
+        assertThat(service.isRevoked("token-live")).isTrue();
+        assertThat(service.isRevoked("token-expired")).isFalse();
+        assertThat(service.getStats()).containsEntry("revoked", 1);
+        verify(repository).deleteExpired(any());
+    }
+
+    @Test
+    void aFilterFalsePositiveIsNotTreatedAsRevoked() {
+        // Sized for one token but given hundreds, so nearly every lookup hits the filter
+        TokenRevocationService service = new TokenRevocationService(repository, 1, 0.5);
+        Date expiry = new Date(System.currentTimeMillis() + 3_600_000);
+        for (int i = 0; i < 500; i++) {
+            service.revoke("revoked-" + i, expiry);
+        }
+
+        int rejected = 0;
+        for (int i = 0; i < 100; i++) {
+            if (service.isRevoked("valid-" + i)) {
+                rejected++;
+            }
+        }
+
+        assertThat(rejected).isZero();
+        assertThat((Long) service.getStats().get("falsePositives")).isPositive();
+        assertThat(service.isRevoked("revoked-7")).isTrue();
+    }
+}
@@ -0,0 +1,163 @@
+package com.appdev.vabara.valmerabanicoruperez.service;
+
+import com.appdev.vabara.valmerabanicoruperez.bus.MessageBus;
+import com.appdev.vabara.valmerabanicoruperez.entity.RatingEntity;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutorEntity;
+import com.appdev.vabara.valmerabanicoruperez.entity.TutoringSessionEntity;
+import com.appdev.vabara.valmerabanicoruperez.repository.TutorRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Rating writes through RatingService and TutoringSessionService, checked against the totals
+// TutorService.ratingChanged leaves on the tutor rows
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:tutor-ratings;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TutorService.class, RatingService.class, TutoringSessionService.class})
+class TutorRatingsTest {
+
+    @MockitoBean
+    private UserDirectoryService userDirectoryService;
+
+    @MockitoBean
+    private PasswordHashingService passwordHashingService;
+
+    @MockitoBean
+    private TutorSearchIndex tutorSearchIndex;
+
+    @MockitoBean
+    private MessageBus messageBus;
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private TutoringSessionService tutoringSessionService;
+
+    @Autowired
+    private TutorRepository tutorRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void updatingARatingMovesTheSumButNotTheCount() {
+        Long tutor = saveTutor("ada@example.com");
+        RatingEntity first = ratingService.addRating(rating(tutor, 5));
+        ratingService.addRating(rating(tutor, 3));
+        assertTotals(tutor, 8L, 2, 4.0);
+
+        ratingService.updateRating(first.getId(), rating(tutor, 2));
+
+        assertTotals(tutor, 5L, 2, 2.5);
+    }
+
+    @Test
+    void aRatingMovedToAnotherTutorLeavesOneAndJoinsTheOther() {
+        Long from = saveTutor("alan@example.com");
+        Long to = saveTutor("grace@example.com");
+        RatingEntity moved = ratingService.addRating(rating(from, 4));
+        ratingService.addRating(rating(from, 2));
+        ratingService.addRating(rating(to, 5));
+
+        ratingService.updateRating(moved.getId(), rating(to, 3));
+
+        assertTotals(from, 2L, 1, 2.0);
+        assertTotals(to, 8L, 2, 4.0);
+    }
+
+    @Test
+    void deletingTheLastRatingLeavesTheTutorUnrated() {
+        Long tutor = saveTutor("edsger@example.com");
+        RatingEntity only = ratingService.addRating(rating(tutor, 4));
+
+        ratingService.deleteRating(only.getId());
+
+        assertTotals(tutor, 0L, 0, null);
+    }
+
+    @Test
+    void aZeroRatingIsUnratedUntilItGetsAScore() {
+        Long tutor = saveTutor("barbara@example.com");
+        ratingService.addRating(rating(tutor, 5));
+        RatingEntity unrated = ratingService.addRating(rating(tutor, 0));
+        assertTotals(tutor, 5L, 1, 5.0);
+
+        ratingService.updateRating(unrated.getId(), rating(tutor, 2));
+        assertTotals(tutor, 7L, 2, 3.5);
+
+        ratingService.updateRating(unrated.getId(), rating(tutor, 0));
+        assertTotals(tutor, 5L, 1, 5.0);
+    }
+
+    @Test
+    void sessionFeedbackCountsAlongsideRatings() {
+        Long tutor = saveTutor("donald@example.com");
+        ratingService.addRating(rating(tutor, 5));
+        TutoringSessionEntity session = tutoringSessionService.addTutoringSession(session(tutor, null));
+        assertTotals(tutor, 5L, 1, 5.0);
+
+        // Feedback left after the session
+        tutoringSessionService.updateTutoringSession(session.getSessionId(), session(tutor, 2));
+        assertTotals(tutor, 7L, 2, 3.5);
+
+        tutoringSessionService.deleteTutoringSession(session.getSessionId());
+        assertTotals(tutor, 5L, 1, 5.0);
+    }
+
+    private Long saveTutor(String email) {
+        TutorEntity tutor = new TutorEntity();
+        tutor.setName(email);
+        tutor.setEmail(email);
+        return tutorRepository.saveAndFlush(tutor).getTutorId();
+    }
+
+    private static RatingEntity rating(Long tutorId, int score) {
+        RatingEntity rating = new RatingEntity();
+        rating.setTutorId(tutorId);
+        rating.setStudentId(1L);
+        rating.setRating(score);
+        return rating;
+    }
+
+    private static TutoringSessionEntity session(Long tutorId, Integer score) {
+        TutoringSessionEntity session = new TutoringSessionEntity();
+        session.setDateTime(LocalDateTime.now());
+        session.setDuration(60);
+        session.setStatus("completed");
+        session.setTutorId(String.valueOf(tutorId));
+        session.setStudentId("1");
+        session.setRating(score);
+        return session;
+    }
+
+    private void assertTotals(Long id, Long ratingSum, int reviews, Double rating) {
+        entityManager.flush();
+        entityManager.clear();
+        TutorEntity tutor = tutorRepository.findById(id).orElseThrow();
+        assertThat(tutor.getRatingSum()).isEqualTo(ratingSum);
+        assertThat(tutor.getReviews()).isEqualTo(reviews);
+        if (rating == null) {
+            assertThat(tutor.getRating()).isNull();
+        } else {
+            assertThat(tutor.getRating()).isCloseTo(rating, within(1e-9));
+        }
+    }
+}
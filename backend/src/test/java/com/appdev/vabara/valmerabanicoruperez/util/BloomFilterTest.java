@@ -0,0 +1,39 @@
+package com.appdev.vabara.valmerabanicoruperez.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void everythingAddedIsFoundAndOthersMostlyAreNot() {
+        Random random = new Random(42);
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        byte[][] added = new byte[10_000][];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = randomHash(random);
+            filter.add(added[i]);
+        }
+
+        for (byte[] hash : added) {
+            assertThat(filter.mightContain(hash)).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(randomHash(random))) {
+                falsePositives++;
+            }
+        }
+        // 1% target at full load, with room for sampling noise
+        assertThat(falsePositives).isLessThan(1_500);
+    }
+
+    private static byte[] randomHash(Random random) {
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        return hash;
+    }
+}
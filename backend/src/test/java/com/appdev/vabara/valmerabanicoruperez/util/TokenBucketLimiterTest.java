@@ -0,0 +1,36 @@
+package com.appdev.vabara.valmerabanicoruperez.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTest {
+
+    @Test
+    void newClientsShareOneBucketWhileTheMapIsFull() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(2, 1, 2);
+        assertThat(limiter.tryAcquire("a")).isTrue();
+        assertThat(limiter.tryAcquire("b")).isTrue();
+
+        assertThat(limiter.tryAcquire("c")).isTrue();
+        assertThat(limiter.tryAcquire("d")).isTrue();
+        assertThat(limiter.tryAcquire("e")).isFalse();
+        assertThat(limiter.getStats()).containsEntry("trackedKeys", 2);
+    }
+
+    @Test
+    void sweepKeepsTheBucketsThatAreThrottled() {
+        TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1, 10);
+        for (int i = 0; i < 9; i++) {
+            limiter.tryAcquire("client-" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("attacker");
+        }
+
+        limiter.evictIdle();
+
+        assertThat(limiter.getStats()).containsEntry("trackedKeys", 9);
+        assertThat(limiter.tryAcquire("attacker")).isFalse();
+    }
+}
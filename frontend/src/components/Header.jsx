@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { Link } from 'react-router-dom';
+import { getSession } from '../services/authService';
 
 const Header = ({ showNav = true }) => {
     const [isLoggedIn, setIsLoggedIn] = useState(false);
@@ -9,16 +10,11 @@ const Header = ({ showNav = true }) => {
         // Check if user is logged in by making a request to a protected endpoint
         const checkAuthStatus = async () => {
             try {
-                const response = await fetch('http://localhost:8080/api/auth/status', {
-                    method: 'GET',
-                    credentials: 'include',
-                });
+                const session = await getSession();
 
-                if (response.ok) {
+                if (session.ok) {
                     setIsLoggedIn(true);
-                    // Get user role from localStorage
-                    const role = localStorage.getItem('userType');
-                    setUserRole(role);
+                    setUserRole(session.data.role);
                 } else {
                     setIsLoggedIn(false);
                 }
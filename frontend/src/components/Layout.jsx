@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from "react";
 import { useNavigate } from "react-router-dom";
+import userService from "../services/userService";
 
 import {
   LayoutDashboard,
@@ -22,6 +23,13 @@ const Layout = ({ children, activePage = "dashboard" }) => {
     setUserRole(role);
   }, []);
 
+  // Tell the server we are online while the app is open
+  useEffect(() => {
+    userService.sendHeartbeat();
+    const interval = setInterval(() => userService.sendHeartbeat(), 30000);
+    return () => clearInterval(interval);
+  }, []);
+
   // Define navigation items for students
   const studentNavItems = [
     {
@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { Navigate } from 'react-router-dom';
+import { getSession } from '../services/authService';
 
 const ProtectedRoute = ({ children, allowedRoles }) => {
   const [isLoggedIn, setIsLoggedIn] = useState(null);
@@ -8,32 +9,18 @@ const ProtectedRoute = ({ children, allowedRoles }) => {
   useEffect(() => {
     const checkAuthStatus = async () => {
       try {
-        // First check basic auth status
-        const statusResponse = await fetch('http://localhost:8080/api/auth/status', {
-          method: 'GET',
-          credentials: 'include',
-        });
+        // Identity and role in one request
+        const session = await getSession();
 
-        if (statusResponse.ok) {
-          // Fetch current user data including role
-          const userResponse = await fetch('http://localhost:8080/api/auth/current-user', {
-            method: 'GET',
-            credentials: 'include',
-          });
+        if (session.ok) {
+          const role = session.data.userType; // 'student' or 'tutor'
 
-          if (userResponse.ok) {
-            const userData = await userResponse.json();
-            const role = userData.userType; // 'student' or 'tutor'
+          // Store user data in localStorage for access across components
+          localStorage.setItem('userType', role);
+          localStorage.setItem('userEmail', session.data.email);
 
-            // Store user data in localStorage for access across components
-            localStorage.setItem('userType', role);
-            localStorage.setItem('userEmail', userData.email);
-
-            setUserRole(role);
-            setIsLoggedIn(true);
-          } else {
-            setIsLoggedIn(false);
-          }
+          setUserRole(role);
+          setIsLoggedIn(true);
         } else {
           setIsLoggedIn(false);
         }
@@ -12,6 +12,7 @@ import {
 } from "lucide-react";
 import { useNavigate, useLocation } from "react-router-dom";
 import Layout from "../components/Layout";
+import { getSession } from "../services/authService";
 import Swal from 'sweetalert2';
 
 export default function BookSession() {
@@ -150,16 +151,13 @@ export default function BookSession() {
   const handleCompleteBooking = async () => {
     try {
       // Get current user info first
-      const userResponse = await fetch('http://localhost:8080/api/auth/status', {
-        method: 'GET',
-        credentials: 'include',
-      });
+      const session = await getSession();
 
-      if (!userResponse.ok) {
+      if (!session.ok) {
         throw new Error('Failed to get user information');
       }
 
-      const userData = await userResponse.json();
+      const userData = session.data;
       console.log('Current user data:', userData);
       console.log('Available fields:', Object.keys(userData));
 
@@ -4,6 +4,7 @@ import { useEffect, useState } from "react";
 import { useNavigate } from "react-router-dom";
 import { Play, Users, BookOpen, Star, Clock, Loader2 } from "lucide-react";
 import Layout from "../components/Layout";
+import { getSession } from "../services/authService";
 
 export default function Dashboard() {
   const navigate = useNavigate();
@@ -25,18 +26,14 @@ export default function Dashboard() {
     const fetchDashboardData = async () => {
       try {
         // Check auth status
-        const authResponse = await fetch('http://localhost:8080/api/auth/status', {
-          method: 'GET',
-          credentials: 'include',
-        });
+        const session = await getSession();
 
-        if (!authResponse.ok) {
+        if (!session.ok) {
           navigate('/login');
           return;
         }
 
-        const authData = await authResponse.json();
-        setUserData(authData);
+        setUserData(session.data);
 
         // Fetch dashboard statistics - handle 403 gracefully
         try {
@@ -20,6 +20,7 @@ const TutorCard = ({
   schedule,
   availability,
   experience,
+  thumbnailUrl,
   onBookSession,
   onStartChat,
 }) => {
@@ -27,9 +28,13 @@ const TutorCard = ({
     <div className="bg-white rounded-lg shadow border border-gray-200 p-6">
       {/* Profile Section */}
       <div className="flex items-center gap-4 mb-4">
-        <div className="w-16 h-16 bg-gradient-to-br from-blue-500 to-blue-700 rounded-full flex items-center justify-center flex-shrink-0">
-          <User className="w-8 h-8 text-white" />
-        </div>
+        {thumbnailUrl ? (
+          <img src={thumbnailUrl} alt={name} className="w-16 h-16 rounded-full object-cover flex-shrink-0" />
+        ) : (
+          <div className="w-16 h-16 bg-gradient-to-br from-blue-500 to-blue-700 rounded-full flex items-center justify-center flex-shrink-0">
+            <User className="w-8 h-8 text-white" />
+          </div>
+        )}
 
         <div className="flex-1">
           <div className="flex items-center gap-2">
@@ -129,47 +134,54 @@ const TutorCard = ({
   )
 }
 
+const RESULT_LIMIT = 100
+const SEARCH_DEBOUNCE_MS = 250
+
+// Transform the data to match the expected format using REAL backend fields
+const toCard = (tutor) => ({
+  tutorId: tutor.tutorId,
+  name: tutor.name || "Unknown Tutor",
+  email: tutor.email,
+  institution: tutor.institution || "Not specified",
+  rating: tutor.rating || 0,
+  reviews: tutor.reviews || 0,
+  hourly: tutor.hourlyRate || 0,
+  subjects: tutor.expertiseSubjects ? tutor.expertiseSubjects.split(',').map(s => s.trim()) : [],
+  location: tutor.location || "Not specified",
+  schedule: tutor.schedule || "Not specified",
+  availability: tutor.availability || "Unknown",
+  experience: tutor.experience || 0,
+  thumbnailUrl: tutorService.blobUrl(tutor.profileThumbnailHash),
+})
+
 export default function FindTutorsPage() {
-  const [tutors, setTutors] = useState([])
   const [filteredTutors, setFilteredTutors] = useState([])
+  const [total, setTotal] = useState(0)
+  const [facets, setFacets] = useState({ subjects: [], availability: [] })
   const [loading, setLoading] = useState(true)
   const [error, setError] = useState(null)
-  const [currentPage, setCurrentPage] = useState(1)
   const [searchQuery, setSearchQuery] = useState("")
   const [subjectFilter, setSubjectFilter] = useState("")
   const [availabilityFilter, setAvailabilityFilter] = useState("")
   const navigate = useNavigate()
 
+  // Search, filters and dropdown counts all come from the server; wait for typing to pause
   useEffect(() => {
-    fetchTutors()
-  }, [])
-
-  // Filter tutors whenever search query or filters change
-  useEffect(() => {
-    filterTutors()
-  }, [searchQuery, subjectFilter, availabilityFilter, tutors])
+    const timer = setTimeout(fetchTutors, SEARCH_DEBOUNCE_MS)
+    return () => clearTimeout(timer)
+  }, [searchQuery, subjectFilter, availabilityFilter])
 
   const fetchTutors = async () => {
     try {
-      setLoading(true)
-      const data = await tutorService.getTutors()
-      // Transform the data to match the expected format using REAL backend fields
-      const transformedTutors = data.map(tutor => ({
-        tutorId: tutor.tutorId,
-        name: tutor.name || "Unknown Tutor",
-        email: tutor.email,
-        institution: tutor.institution || "Not specified",
-        rating: tutor.rating || 0,
-        reviews: tutor.reviews || 0,
-        hourly: tutor.hourlyRate || 0,
-        subjects: tutor.expertiseSubjects ? tutor.expertiseSubjects.split(',').map(s => s.trim()) : [],
-        location: tutor.location || "Not specified",
-        schedule: tutor.schedule || "Not specified",
-        availability: tutor.availability || "Unknown",
-        experience: tutor.experience || 0,
-      }))
-      setTutors(transformedTutors)
-      setFilteredTutors(transformedTutors)
+      const data = await tutorService.discoverTutors({
+        q: searchQuery.trim(),
+        subject: subjectFilter,
+        availability: availabilityFilter,
+        limit: RESULT_LIMIT,
+      })
+      setFilteredTutors(data.data.map(toCard))
+      setTotal(data.total)
+      setFacets(data.facets)
       setError(null)
     } catch (err) {
       setError("Failed to fetch tutors")
@@ -179,40 +191,6 @@ export default function FindTutorsPage() {
     }
   }
 
-  const filterTutors = () => {
-    let filtered = [...tutors]
-
-    // Search filter: search in name and subjects
-    if (searchQuery.trim()) {
-      const query = searchQuery.toLowerCase()
-      filtered = filtered.filter(tutor => {
-        const nameMatch = tutor.name.toLowerCase().includes(query)
-        const subjectMatch = tutor.subjects.some(subject =>
-          subject.toLowerCase().includes(query)
-        )
-        return nameMatch || subjectMatch
-      })
-    }
-
-    // Subject filter
-    if (subjectFilter) {
-      filtered = filtered.filter(tutor =>
-        tutor.subjects.some(subject =>
-          subject.toLowerCase() === subjectFilter.toLowerCase()
-        )
-      )
-    }
-
-    // Availability filter
-    if (availabilityFilter) {
-      filtered = filtered.filter(tutor =>
-        tutor.availability.toLowerCase() === availabilityFilter.toLowerCase()
-      )
-    }
-
-    setFilteredTutors(filtered)
-  }
-
   const handleStartChat = async (tutor) => {
     try {
       const result = await createConversation(tutor);
@@ -322,8 +300,8 @@ export default function FindTutorsPage() {
               className="px-4 py-2 border border-gray-300 rounded focus:outline-none focus:border-blue-500"
             >
               <option value="">All Subjects</option>
-              {[...new Set(tutors.flatMap(tutor => tutor.subjects))].sort().map((subject, index) => (
-                <option key={index} value={subject}>{subject}</option>
+              {facets.subjects.map((subject) => (
+                <option key={subject.value} value={subject.value}>{subject.value} ({subject.count})</option>
               ))}
             </select>
 
@@ -333,15 +311,15 @@ export default function FindTutorsPage() {
               className="px-4 py-2 border border-gray-300 rounded focus:outline-none focus:border-blue-500"
             >
               <option value="">All Availability</option>
-              {[...new Set(tutors.map(tutor => tutor.availability))].sort().map((availability, index) => (
-                <option key={index} value={availability}>{availability}</option>
+              {facets.availability.map((availability) => (
+                <option key={availability.value} value={availability.value}>{availability.value} ({availability.count})</option>
               ))}
             </select>
           </div>
 
           {/* Results Count */}
           <div className="flex justify-between items-center mb-6">
-            <p className="text-gray-600">Showing {filteredTutors.length} tutors</p>
+            <p className="text-gray-600">Showing {filteredTutors.length} of {total} tutors</p>
             <p className="text-gray-600">Sort by:</p>
           </div>
         </div>
@@ -12,7 +12,7 @@ import {
   Trash2
 } from "lucide-react";
 import { useNavigate } from "react-router-dom";
-import { getConversations, getMessages, sendMessage, deleteMessage, reactToMessage } from "../services/messageService";
+import { getConversations, getMessages, subscribeToConversation, markConversationRead, sendMessage, deleteMessage, reactToMessage } from "../services/messageService";
 import tutorService from "../services/tutorService";
 import Layout from "../components/Layout";
 
@@ -79,6 +79,10 @@ export default function MessagesPage() {
         const result = await getMessages(selectedConversation);
         if (result.success) {
           setCurrentMessages(result.data);
+          await markConversationRead(selectedConversation);
+          setConversations(prev => prev.map(conv =>
+            conv.id === selectedConversation ? { ...conv, unread: 0 } : conv
+          ));
         }
       } catch (error) {
         console.error("Failed to load messages:", error);
@@ -88,6 +92,23 @@ export default function MessagesPage() {
     loadMessages();
   }, [selectedConversation]);
 
+  // Receive new messages for the open conversation as they are sent
+  useEffect(() => {
+    if (!selectedConversation) return;
+
+    const unsubscribe = subscribeToConversation(selectedConversation, (message) => {
+      setCurrentMessages(prev =>
+        prev.some(msg => msg.id === message.id) ? prev : [...prev, message]
+      );
+      // The thread is open, so the other side's message has been seen
+      if (!message.isMe) {
+        markConversationRead(selectedConversation);
+      }
+    });
+
+    return unsubscribe;
+  }, [selectedConversation]);
+
   // Close emoji picker when clicking outside
   useEffect(() => {
     const handleClickOutside = (event) => {
@@ -118,7 +139,9 @@ export default function MessagesPage() {
     try {
       const result = await sendMessage(selectedConversation, messageInput);
       if (result.success) {
-        setCurrentMessages([...currentMessages, result.data]);
+        setCurrentMessages(prev =>
+          prev.some(msg => msg.id === result.data.id) ? prev : [...prev, result.data]
+        );
         setMessageInput("");
       }
     } catch (error) {
@@ -233,9 +256,13 @@ export default function MessagesPage() {
                   >
                     <div className="flex items-start gap-3">
                       <div className="relative">
-                        <div className="w-10 h-10 bg-gray-200 rounded-full flex items-center justify-center">
-                          <span className="font-semibold text-gray-600">{conv.name.charAt(0)}</span>
-                        </div>
+                        {conv.avatarHash ? (
+                          <img src={tutorService.blobUrl(conv.avatarHash)} alt={conv.name} className="w-10 h-10 rounded-full object-cover" />
+                        ) : (
+                          <div className="w-10 h-10 bg-gray-200 rounded-full flex items-center justify-center">
+                            <span className="font-semibold text-gray-600">{conv.name.charAt(0)}</span>
+                          </div>
+                        )}
                         <div className={`absolute bottom-0 right-0 w-3 h-3 rounded-full border-2 border-white ${conv.status.includes('Online') ? 'bg-green-500' : 'bg-gray-400'}`}></div>
                       </div>
                       <div className="flex-1 min-w-0">
@@ -296,9 +323,13 @@ export default function MessagesPage() {
             <header className="h-20 border-b border-gray-200 flex items-center justify-between px-8">
               <div className="flex items-center gap-4">
                 <div className="relative">
-                  <div className="w-10 h-10 bg-gray-200 rounded-full flex items-center justify-center">
-                    <span className="font-semibold text-gray-600">{selectedConvData?.name.charAt(0)}</span>
-                  </div>
+                  {selectedConvData?.avatarHash ? (
+                    <img src={tutorService.blobUrl(selectedConvData.avatarHash)} alt={selectedConvData.name} className="w-10 h-10 rounded-full object-cover" />
+                  ) : (
+                    <div className="w-10 h-10 bg-gray-200 rounded-full flex items-center justify-center">
+                      <span className="font-semibold text-gray-600">{selectedConvData?.name.charAt(0)}</span>
+                    </div>
+                  )}
                   <div className={`absolute bottom-0 right-0 w-3 h-3 rounded-full border-2 border-white ${selectedConvData?.status.includes('Online') ? 'bg-green-500' : 'bg-gray-400'}`}></div>
                 </div>
                 <div>
@@ -18,6 +18,7 @@ import {
 } from "lucide-react";
 import Layout from "../components/Layout";
 import sessionService from "../services/sessionService";
+import { getSession } from "../services/authService";
 
 import Swal from 'sweetalert2';
 
@@ -56,13 +57,10 @@ export default function SessionRoom() {
         setSession(sessionData);
 
         // 2. Fetch Current User Details to determine role
-        const authResponse = await fetch('http://localhost:8080/api/auth/status', {
-            credentials: 'include'
-        });
-        
-        if (authResponse.ok) {
-            const userData = await authResponse.json();
-            setCurrentUser(userData);
+        const auth = await getSession();
+
+        if (auth.ok) {
+            setCurrentUser(auth.data);
         }
 
       } catch (err) {
@@ -17,6 +17,7 @@ import {
 } from "lucide-react";
 import { useNavigate, useLocation } from "react-router-dom";
 import sessionService from "../services/sessionService";
+import { getSession } from "../services/authService";
 import Layout from "../components/Layout";
 import Swal from 'sweetalert2';
 
@@ -62,17 +63,14 @@ export default function StudentSessionsPage() {
 
     const checkUserRole = async () => {
         try {
-            const response = await fetch('http://localhost:8080/api/auth/status', {
-                method: 'GET',
-                credentials: 'include',
-            });
+            const session = await getSession();
 
-            if (!response.ok) {
+            if (!session.ok) {
                 navigate('/login');
                 return;
             }
 
-            const data = await response.json();
+            const data = session.data;
             setUserRole(data.role);
 
             // Redirect tutors to tutor sessions page
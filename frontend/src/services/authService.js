@@ -0,0 +1,26 @@
+// Auth Service - session bootstrap shared by every page
+
+const BASE_URL = 'http://localhost:8080/api/auth';
+
+let pendingSession = null;
+
+// Identity, profile and counters of the logged-in user in one request.
+// Components asking at the same time share one request, and the browser revalidates
+// with the ETag, so an unchanged session comes back as a 304.
+export const getSession = () => {
+  if (!pendingSession) {
+    pendingSession = fetch(`${BASE_URL}/session`, {
+      method: 'GET',
+      credentials: 'include',
+    })
+      .then(async (response) => ({
+        ok: response.ok,
+        status: response.status,
+        data: response.ok ? await response.json() : null,
+      }))
+      .finally(() => {
+        pendingSession = null;
+      });
+  }
+  return pendingSession;
+};
@@ -23,10 +23,11 @@ export const getConversations = async () => {
   }
 };
 
-// Get messages for a specific conversation
-export const getMessages = async (conversationId) => {
+// Get messages for a specific conversation (newest page, or the page older than `before`)
+export const getMessages = async (conversationId, before = null) => {
   try {
-    const response = await fetch(`${BASE_URL}/conversations/${conversationId}/messages`, {
+    const query = before ? `?before=${before}` : '';
+    const response = await fetch(`${BASE_URL}/conversations/${conversationId}/messages${query}`, {
       method: 'GET',
       credentials: 'include',
       headers: {
@@ -44,6 +45,92 @@ export const getMessages = async (conversationId) => {
   }
 };
 
+// Get messages newer than `after`; with `wait` the server holds the request up to that many
+// seconds for a new message. Returns { success, data: [], notModified: true } when nothing changed.
+export const getMessagesSince = async (conversationId, after, wait = 0, etag = null) => {
+  try {
+    const params = new URLSearchParams({ after, wait });
+    const response = await fetch(`${BASE_URL}/conversations/${conversationId}/messages/since?${params}`, {
+      method: 'GET',
+      credentials: 'include',
+      headers: {
+        'Content-Type': 'application/json',
+        ...(etag ? { 'If-None-Match': etag } : {}),
+      },
+    });
+
+    if (response.status === 304) {
+      return { success: true, data: [], cursor: after, notModified: true, etag };
+    }
+
+    const data = await response.json();
+    return { ...data, etag: response.headers.get('ETag') };
+  } catch (error) {
+    return {
+      success: false,
+      error: error.message || 'Failed to fetch new messages'
+    };
+  }
+};
+
+// Subscribe to new messages pushed by the server; returns a function that closes the stream
+export const subscribeToConversation = (conversationId, onMessage) => {
+  const source = new EventSource(`${BASE_URL}/conversations/${conversationId}/stream`, {
+    withCredentials: true,
+  });
+  source.addEventListener('message', (event) => {
+    try {
+      onMessage(JSON.parse(event.data));
+    } catch (error) {
+      console.error('Failed to parse pushed message:', error);
+    }
+  });
+  return () => source.close();
+};
+
+// Clear the unread badge of a conversation for the logged-in user
+export const markConversationRead = async (conversationId) => {
+  try {
+    const response = await fetch(`${BASE_URL}/conversations/${conversationId}/read`, {
+      method: 'POST',
+      credentials: 'include',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+    });
+
+    const data = await response.json();
+    return data;
+  } catch (error) {
+    return {
+      success: false,
+      error: error.message || 'Failed to mark conversation as read'
+    };
+  }
+};
+
+// Search message text across the logged-in user's conversations
+export const searchMessages = async (query, limit = 20) => {
+  try {
+    const params = new URLSearchParams({ q: query, limit });
+    const response = await fetch(`${BASE_URL}/search?${params}`, {
+      method: 'GET',
+      credentials: 'include',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+    });
+
+    const data = await response.json();
+    return data;
+  } catch (error) {
+    return {
+      success: false,
+      error: error.message || 'Failed to search messages'
+    };
+  }
+};
+
 // Create a new conversation with a tutor
 export const createConversation = async (tutorData) => {
   try {
@@ -142,6 +229,10 @@ export const reactToMessage = async (messageId, reaction) => {
 export default {
   getConversations,
   getMessages,
+  getMessagesSince,
+  subscribeToConversation,
+  markConversationRead,
+  searchMessages,
   sendMessage,
   createConversation,
   deleteMessage,
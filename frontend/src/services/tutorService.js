@@ -17,6 +17,33 @@ class TutorService {
     }
   }
 
+  // Top matches plus subject/availability facet counts from the server-side tutor index
+  async discoverTutors({ q, subject, availability, sort, limit } = {}) {
+    try {
+      const params = new URLSearchParams();
+      if (q) params.append('q', q);
+      if (subject) params.append('subject', subject);
+      if (availability) params.append('availability', availability);
+      if (sort) params.append('sort', sort);
+      if (limit) params.append('limit', limit);
+      const response = await fetch(`${API_BASE_URL}/api/tutors/discover?${params.toString()}`, {
+        credentials: 'include'
+      });
+      if (!response.ok) {
+        throw new Error(`HTTP error! status: ${response.status}`);
+      }
+      return await response.json();
+    } catch (error) {
+      console.error('Error searching tutors:', error);
+      throw error;
+    }
+  }
+
+  // URL of a blob store image (pictures and their thumbnails are addressed by hash)
+  blobUrl(hash) {
+    return hash ? `${API_BASE_URL}/api/blobs/${hash}` : null;
+  }
+
   async getTutor(id) {
     try {
       const response = await fetch(`${API_BASE_URL}/api/tutors/${id}`, {
@@ -88,34 +115,6 @@ class TutorService {
     }
   }
 
-  async updateTutorRating(id, rating) {
-    try {
-      const token = localStorage.getItem('token');
-      const headers = {
-        'Content-Type': 'application/json',
-      };
-      if (token) {
-        headers['Authorization'] = `Bearer ${token}`;
-      }
-
-      const response = await fetch(`${API_BASE_URL}/api/tutors/${id}/rating`, {
-        method: 'PATCH',
-        headers,
-        credentials: 'include',
-        body: JSON.stringify(rating),
-      });
-
-      if (!response.ok) {
-        throw new Error(`HTTP error! status: ${response.status}`);
-      }
-
-      return await response.json();
-    } catch (error) {
-      console.error(`Error updating tutor rating for id ${id}:`, error);
-      throw error;
-    }
-  }
-
   async deleteTutor(id) {
     try {
       const token = localStorage.getItem('token');
@@ -4,7 +4,7 @@ const API_BASE_URL = 'http://localhost:8080';
 class UserService {
   async getCurrentUser() {
     try {
-      const response = await fetch(`${API_BASE_URL}/api/auth/current-user`, {
+      const response = await fetch(`${API_BASE_URL}/api/auth/session`, {
         credentials: 'include',
         headers: {
           'Content-Type': 'application/json',
@@ -27,6 +27,18 @@ class UserService {
     }
   }
 
+  // Tells the server this user is online; failures are ignored, the next beat retries
+  async sendHeartbeat() {
+    try {
+      await fetch(`${API_BASE_URL}/api/presence/heartbeat`, {
+        method: 'POST',
+        credentials: 'include',
+      });
+    } catch (error) {
+      // Offline or server restarting
+    }
+  }
+
   async updateUserProfile(userId, userData) {
     try {
       const token = localStorage.getItem('token');
@@ -78,7 +90,7 @@ class UserService {
         headers['Authorization'] = `Bearer ${token}`;
       }
 
-      // This endpoint would need to be implemented in the backend
+      // Stored in the blob store; the response carries profilePictureHash and profilePictureUrl
       const response = await fetch(`${API_BASE_URL}/api/students/${userId}/profile-picture`, {
         method: 'POST',
         headers,